@@ -32,6 +32,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.WeakHashMap;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.factory.ArtifactFactory;
@@ -60,13 +61,10 @@ import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.Task;
 import org.apache.tools.ant.taskdefs.Execute;
-import org.codehaus.classworlds.ClassWorld;
-import org.codehaus.classworlds.DuplicateRealmException;
 import org.codehaus.plexus.PlexusContainer;
 import org.codehaus.plexus.PlexusContainerException;
 import org.codehaus.plexus.component.repository.exception.ComponentLifecycleException;
 import org.codehaus.plexus.component.repository.exception.ComponentLookupException;
-import org.codehaus.plexus.embed.Embedder;
 import org.codehaus.plexus.interpolation.EnvarBasedValueSource;
 import org.codehaus.plexus.interpolation.RegexBasedInterpolator;
 import org.codehaus.plexus.util.IOUtil;
@@ -89,8 +87,20 @@ public abstract class AbstractArtifactTask
 
     private static final String EXTERNAL_WILDCARD = "external:*";
 
+    /**
+     * The property enabling a Plexus container shared by all the Ant projects of the build, instead of one container
+     * per project.
+     */
+    public static final String SHARED_CONTAINER_PROPERTY = "maven.ant.tasks.sharedContainer";
+
     private static ClassLoader plexusClassLoader;
 
+    /**
+     * The settings each wagon manager was last configured with.
+     */
+    private static final Map<WagonManager, Settings> CONFIGURED_WAGON_MANAGERS =
+        new WeakHashMap<WagonManager, Settings>();
+
     private File userSettingsFile;
 
     private File globalSettingsFile;
@@ -112,7 +122,10 @@ public abstract class AbstractArtifactTask
         ArtifactRepositoryLayout repositoryLayout =
             (ArtifactRepositoryLayout) lookup( ArtifactRepositoryLayout.ROLE, getLocalRepository().getLayout() );
 
-        return new DefaultArtifactRepository( "local", "file://" + getLocalRepository().getPath(), repositoryLayout );
+        ArtifactRepository localRepository =
+            new DefaultArtifactRepository( "local", "file://" + getLocalRepository().getPath(), repositoryLayout );
+        LocalRepositoryIndex.open( getProject(), localRepository );
+        return localRepository;
     }
 
     /**
@@ -187,7 +200,7 @@ public abstract class AbstractArtifactTask
         return artifactRepository;
     }
 
-    private static ArtifactRepositoryPolicy buildArtifactRepositoryPolicy( RepositoryPolicy policy )
+    private ArtifactRepositoryPolicy buildArtifactRepositoryPolicy( RepositoryPolicy policy )
     {
         boolean enabled = true;
         String updatePolicy = null;
@@ -206,7 +219,8 @@ public abstract class AbstractArtifactTask
             }
         }
 
-        return new ArtifactRepositoryPolicy( enabled, updatePolicy, checksumPolicy );
+        // a repository is checked for updates once per build, even by tasks of different projects
+        return new SessionRepositoryPolicy( getProject(), enabled, updatePolicy, checksumPolicy );
     }
 
     protected LocalRepository getDefaultLocalRepository()
@@ -277,20 +291,43 @@ public abstract class AbstractArtifactTask
             }
         }
 
-        Settings userSettings = loadSettings( userSettingsFile );
-        Settings globalSettings = loadSettings( globalSettingsFile );
+        SettingsCache.Key key = new SettingsCache.Key( userSettingsFile, globalSettingsFile );
+        settings = SettingsCache.get( key );
+        if ( settings != null )
+        {
+            log( "Using cached Maven settings", Project.MSG_DEBUG );
+        }
+        else
+        {
+            Settings userSettings = loadSettings( userSettingsFile );
+            Settings globalSettings = loadSettings( globalSettingsFile );
+
+            SettingsUtils.merge( userSettings, globalSettings, TrackableBase.GLOBAL_LEVEL );
+            settings = userSettings;
 
-        SettingsUtils.merge( userSettings, globalSettings, TrackableBase.GLOBAL_LEVEL );
-        settings = userSettings;
+            if ( StringUtils.isEmpty( settings.getLocalRepository() ) )
+            {
+                String location = newFile( System.getProperty( "user.home" ), ".m2", "repository" ).getAbsolutePath();
+                settings.setLocalRepository( location );
+            }
 
-        if ( StringUtils.isEmpty( settings.getLocalRepository() ) )
-        {
-            String location = newFile( System.getProperty( "user.home" ), ".m2", "repository" ).getAbsolutePath();
-            settings.setLocalRepository( location );
+            SettingsCache.put( key, settings );
         }
 
         WagonManager wagonManager = (WagonManager) lookup( WagonManager.ROLE );
-        wagonManager.setDownloadMonitor( new AntDownloadMonitor() );
+        synchronized ( CONFIGURED_WAGON_MANAGERS )
+        {
+            // the wagon manager is a singleton of the container: only configure it when the settings change
+            if ( CONFIGURED_WAGON_MANAGERS.get( wagonManager ) == settings )
+            {
+                return;
+            }
+            CONFIGURED_WAGON_MANAGERS.put( wagonManager, settings );
+        }
+
+        AntDownloadMonitor downloadMonitor = new AntDownloadMonitor();
+        downloadMonitor.setProject( getProject() );
+        wagonManager.setDownloadMonitor( downloadMonitor );
         if ( settings.isOffline() )
         {
             log( "You are working in offline mode.", Project.MSG_INFO );
@@ -510,25 +547,13 @@ public abstract class AbstractArtifactTask
 
             if ( container == null )
             {
-                try
-                {
-                    ClassWorld classWorld = new ClassWorld();
-
-                    classWorld.newRealm( "plexus.core", getClass().getClassLoader() );
-
-                    Embedder embedder = new Embedder();
-
-                    embedder.start( classWorld );
-
-                    container = embedder.getContainer();
-                }
-                catch ( PlexusContainerException e )
+                if ( isSharedContainer() )
                 {
-                    throw new BuildException( "Unable to start embedder", e );
+                    container = PlexusContainerRegistry.getContainer( getProject(), getClass().getClassLoader() );
                 }
-                catch ( DuplicateRealmException e )
+                else
                 {
-                    throw new BuildException( "Unable to create embedder ClassRealm", e );
+                    container = PlexusContainerRegistry.createContainer( getClass().getClassLoader() );
                 }
 
                 getProject().addReference( PlexusContainer.class.getName(), container );
@@ -538,6 +563,40 @@ public abstract class AbstractArtifactTask
         return container;
     }
 
+    /**
+     * Add jars to the container used by this project. When the container is shared, the project switches to a
+     * shared container with these jars added, leaving the container used by the other projects unchanged.
+     *
+     * @param jars the jars to add
+     * @throws PlexusContainerException if a jar can't be added
+     */
+    protected synchronized void addJarResources( List<File> jars )
+        throws PlexusContainerException
+    {
+        if ( isSharedContainer() )
+        {
+            container = PlexusContainerRegistry.addJarResources( getProject(), getClass().getClassLoader(),
+                                                                 getContainer(), jars );
+            getProject().addReference( PlexusContainer.class.getName(), container );
+        }
+        else
+        {
+            for ( File jar : jars )
+            {
+                getContainer().addJarResource( jar );
+            }
+        }
+    }
+
+    /**
+     * Check if the Plexus container is shared by all the projects of the build, as requested by the
+     * <code>maven.ant.tasks.sharedContainer</code> property.
+     */
+    private boolean isSharedContainer()
+    {
+        return Project.toBoolean( getProject().getProperty( SHARED_CONTAINER_PROPERTY ) );
+    }
+
     /**
      * Tries to initialize the pom.  If no pom has been configured, returns null.
      *
@@ -19,13 +19,21 @@ package org.apache.maven.artifact.ant;
  * under the License.
  */
 
+import java.io.File;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.maven.wagon.ResourceDoesNotExistException;
 import org.apache.maven.wagon.events.TransferEvent;
 import org.apache.maven.wagon.events.TransferListener;
+import org.apache.maven.wagon.repository.Repository;
+import org.apache.maven.wagon.resource.Resource;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.ProjectComponent;
 
 /**
- * Log wagon events in the ant tasks
+ * Log wagon events in the ant tasks, and record the {@link TransferMetrics transfer metrics} of the build.
  *
  * @author <a href="mailto:brett@apache.org">Brett Porter</a>
  * @version $Id$
@@ -36,6 +44,14 @@ public class AntDownloadMonitor
 {
     private static final int KILO = 1024;
 
+    private static final String TMP_SUFFIX = ".tmp";
+
+    /**
+     * The transfers in progress, by resource. The monitor of a wagon manager is shared by the threads of the tasks.
+     */
+    private final Map<Resource, Transfer> transfers =
+        Collections.synchronizedMap( new IdentityHashMap<Resource, Transfer>() );
+
     public void debug( String s )
     {
         log( s, Project.MSG_DEBUG );
@@ -43,6 +59,8 @@ public class AntDownloadMonitor
 
     public void transferCompleted( TransferEvent event )
     {
+        record( event, false );
+
         long contentLength = event.getResource().getContentLength();
         if ( ( contentLength > 0 ) && ( event.getRequestType() == TransferEvent.REQUEST_PUT ) )
         {
@@ -52,11 +70,26 @@ public class AntDownloadMonitor
 
     public void transferError( TransferEvent event )
     {
+        Transfer transfer = record( event, true );
+        if ( transfer != null && transfer.localFile != null
+            && event.getException() instanceof ResourceDoesNotExistException )
+        {
+            // the error event has no local file
+            NotFoundCache.notFound( getLocalFile( transfer.localFile ), event.getWagon().getRepository().getUrl() );
+        }
+
         log( event.getException().getMessage(), Project.MSG_ERR );
     }
 
     public void transferInitiated( TransferEvent event )
     {
+        if ( getProject() != null )
+        {
+            // the metrics are reported at the end of the session
+            BuildSession.join( getProject() );
+        }
+        transfers.put( event.getResource(), new Transfer( event.getLocalFile() ) );
+
         String message = event.getRequestType() == TransferEvent.REQUEST_PUT ? "Uploading" : "Downloading";
         String dest = event.getRequestType() == TransferEvent.REQUEST_PUT ? " to " : " from ";
 
@@ -66,10 +99,21 @@ public class AntDownloadMonitor
 
     public void transferProgress( TransferEvent event, byte[] bytes, int i )
     {
+        Transfer transfer = transfers.get( event.getResource() );
+        if ( transfer != null )
+        {
+            transfer.bytes += i;
+        }
     }
 
     public void transferStarted( TransferEvent event )
     {
+        Transfer transfer = transfers.get( event.getResource() );
+        if ( transfer != null )
+        {
+            transfer.firstByte = System.nanoTime() - transfer.start;
+        }
+
         long contentLength = event.getResource().getContentLength();
         if ( contentLength > 0 )
         {
@@ -77,4 +121,64 @@ public class AntDownloadMonitor
                             + event.getWagon().getRepository().getId() );
         }
     }
+
+    private Transfer record( TransferEvent event, boolean failed )
+    {
+        Transfer transfer = transfers.remove( event.getResource() );
+        if ( transfer == null )
+        {
+            return null;
+        }
+
+        long bytes = transfer.bytes;
+        if ( bytes == 0 && !failed && event.getResource().getContentLength() > 0 )
+        {
+            bytes = event.getResource().getContentLength();
+        }
+        long end = System.nanoTime();
+        Repository repository = event.getWagon().getRepository();
+        TransferMetrics.record( repository.getId(), repository.getUrl(),
+                                event.getRequestType() == TransferEvent.REQUEST_PUT ? TransferMetrics.PUT
+                                                : TransferMetrics.GET, bytes, transfer.firstByte,
+                                end - transfer.start, failed );
+
+        if ( !failed && event.getRequestType() == TransferEvent.REQUEST_GET && event.getLocalFile() != null )
+        {
+            ResolutionProfiler.downloaded( getLocalFile( event.getLocalFile() ), transfer.start, end );
+        }
+        return transfer;
+    }
+
+    /**
+     * Get the file of the local repository a download is written to.
+     */
+    private static File getLocalFile( File localFile )
+    {
+        // the wagon manager downloads x.jar to x.jar.tmp and x.jar.sha1 to x.jar.tmp.sha1.tmp, then renames them
+        String path = localFile.getPath();
+        if ( path.endsWith( TMP_SUFFIX ) )
+        {
+            path = path.substring( 0, path.length() - TMP_SUFFIX.length() ).replace( TMP_SUFFIX + ".", "." );
+        }
+        return new File( path );
+    }
+
+    /**
+     * A transfer in progress. It is only updated by the thread of the transfer.
+     */
+    private static class Transfer
+    {
+        private final long start = System.nanoTime();
+
+        private final File localFile;
+
+        private long firstByte = -1;
+
+        private long bytes;
+
+        Transfer( File localFile )
+        {
+            this.localFile = localFile;
+        }
+    }
 }
@@ -0,0 +1,182 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.tools.ant.Project;
+
+/**
+ * A read-only view of the properties of an Ant project, given to the Maven project builder instead of a copy of the
+ * whole property table for each POM.
+ * <p>
+ * Single property lookups, which are all the interpolation and the profile activation do, go to the project. The
+ * properties of the poms registered in the project are not part of the view, as they aren't in the property table.
+ * Iterating the view works on a copy of the table, made at each iteration.
+ * </p>
+ *
+ * @since 2.1.4
+ */
+class AntProjectProperties
+    extends Properties
+{
+    private static final long serialVersionUID = 1L;
+
+    private final transient Project project;
+
+    private final boolean userPropertiesOnly;
+
+    /**
+     * @param project the Ant project
+     * @param userPropertiesOnly whether the view is restricted to the user properties
+     */
+    AntProjectProperties( Project project, boolean userPropertiesOnly )
+    {
+        this.project = project;
+        this.userPropertiesOnly = userPropertiesOnly;
+    }
+
+    public String getProperty( String key )
+    {
+        if ( key == null )
+        {
+            return null;
+        }
+        if ( userPropertiesOnly )
+        {
+            return project.getUserProperty( key );
+        }
+        if ( POMPropertyHelper.getPom( project, key ) != null )
+        {
+            return null;
+        }
+        return project.getProperty( key );
+    }
+
+    public String getProperty( String key, String defaultValue )
+    {
+        String value = getProperty( key );
+        return ( value == null ) ? defaultValue : value;
+    }
+
+    public Object get( Object key )
+    {
+        return ( key instanceof String ) ? getProperty( (String) key ) : null;
+    }
+
+    public boolean containsKey( Object key )
+    {
+        return get( key ) != null;
+    }
+
+    /**
+     * Copy the property table of the project, for the operations which need all the properties.
+     */
+    private Map<Object, Object> snapshot()
+    {
+        Hashtable<?, ?> table = userPropertiesOnly ? project.getUserProperties() : project.getProperties();
+        return Collections.unmodifiableMap( table );
+    }
+
+    public Set<Object> keySet()
+    {
+        return snapshot().keySet();
+    }
+
+    public Set<Map.Entry<Object, Object>> entrySet()
+    {
+        return snapshot().entrySet();
+    }
+
+    public Collection<Object> values()
+    {
+        return snapshot().values();
+    }
+
+    public Enumeration<Object> keys()
+    {
+        return Collections.enumeration( keySet() );
+    }
+
+    public Enumeration<Object> elements()
+    {
+        return Collections.enumeration( values() );
+    }
+
+    public Enumeration<?> propertyNames()
+    {
+        return keys();
+    }
+
+    public int size()
+    {
+        return snapshot().size();
+    }
+
+    public boolean isEmpty()
+    {
+        return snapshot().isEmpty();
+    }
+
+    public boolean contains( Object value )
+    {
+        return snapshot().containsValue( value );
+    }
+
+    public boolean containsValue( Object value )
+    {
+        return snapshot().containsValue( value );
+    }
+
+    public String toString()
+    {
+        return snapshot().toString();
+    }
+
+    public Object setProperty( String key, String value )
+    {
+        throw new UnsupportedOperationException( "Ant project properties are read-only" );
+    }
+
+    public Object put( Object key, Object value )
+    {
+        throw new UnsupportedOperationException( "Ant project properties are read-only" );
+    }
+
+    public void putAll( Map<?, ?> map )
+    {
+        throw new UnsupportedOperationException( "Ant project properties are read-only" );
+    }
+
+    public Object remove( Object key )
+    {
+        throw new UnsupportedOperationException( "Ant project properties are read-only" );
+    }
+
+    public void clear()
+    {
+        throw new UnsupportedOperationException( "Ant project properties are read-only" );
+    }
+}
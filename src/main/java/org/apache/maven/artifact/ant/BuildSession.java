@@ -0,0 +1,212 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tools.ant.BuildEvent;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.SubBuildListener;
+
+/**
+ * The session of a build, shared by the tasks of the top level project and of the projects created by
+ * <code>&lt;ant&gt;</code>, <code>&lt;antcall&gt;</code> or <code>&lt;subant&gt;</code>.
+ * <p>
+ * The session starts when a project first joins it, and ends when all the projects which joined it have finished,
+ * notifying the registered {@link Listener listeners}. A project joins the session when the tasks are defined in it,
+ * and when one of its tasks asks for the session. Since Ant gives no access to the parent of a project, the projects
+ * created by a build whose project never joined the session, for example a build only running
+ * <code>&lt;subant&gt;</code> on builds defining the tasks themselves, each get their own session.
+ * </p>
+ *
+ * @since 2.1.4
+ */
+class BuildSession
+{
+    private static final SessionListener LISTENER = new SessionListener();
+
+    /**
+     * The projects which joined the session and have not finished yet.
+     */
+    private static final Map<Project, Project> PROJECTS = new IdentityHashMap<Project, Project>();
+
+    private static final List<Listener> LISTENERS = new ArrayList<Listener>();
+
+    /**
+     * The start of the session, or -1 outside of a session.
+     */
+    private static long start = -1;
+
+    /**
+     * The number of the session, or of the last session outside of a session.
+     */
+    private static long session;
+
+    private BuildSession()
+    {
+        // no instances
+    }
+
+    /**
+     * Join the session, starting it if needed. The session won't end before the project has finished.
+     *
+     * @param project the project joining the session
+     */
+    static synchronized void join( Project project )
+    {
+        if ( start < 0 )
+        {
+            long now = System.currentTimeMillis();
+            start = now - now % 1000;
+            session++;
+        }
+
+        if ( PROJECTS.put( project, project ) == null )
+        {
+            // the project may already have the listener, copied from its parent by <ant>
+            project.addBuildListener( LISTENER );
+        }
+    }
+
+    /**
+     * Get the start of the session, joining it.
+     *
+     * @param project the project of the calling task
+     * @return the start of the session, in milliseconds rounded down to the second, since file systems may store
+     *         modification times in whole seconds
+     */
+    static synchronized long getStart( Project project )
+    {
+        join( project );
+        return start;
+    }
+
+    /**
+     * Get the number identifying the session, joining it.
+     *
+     * @param project the project of the calling task
+     * @return the number of the session
+     */
+    static synchronized long getSession( Project project )
+    {
+        join( project );
+        return session;
+    }
+
+    /**
+     * Check whether a session is still in progress.
+     *
+     * @param session the number of the session
+     */
+    static synchronized boolean isActive( long session )
+    {
+        return start >= 0 && session == BuildSession.session;
+    }
+
+    /**
+     * Register a listener notified of the end of every session.
+     */
+    static synchronized void addListener( Listener listener )
+    {
+        LISTENERS.add( listener );
+    }
+
+    private static void finished( Project project )
+    {
+        List<Listener> listeners;
+        synchronized ( BuildSession.class )
+        {
+            if ( PROJECTS.remove( project ) == null || !PROJECTS.isEmpty() )
+            {
+                return;
+            }
+            start = -1;
+            listeners = new ArrayList<Listener>( LISTENERS );
+        }
+        for ( Listener listener : listeners )
+        {
+            listener.sessionEnded( project );
+        }
+    }
+
+    /**
+     * Listener of the end of the sessions.
+     */
+    interface Listener
+    {
+        /**
+         * Called when a session ends.
+         *
+         * @param project the last project of the session to finish
+         */
+        void sessionEnded( Project project );
+    }
+
+    /**
+     * Notified of the end of the projects which joined the session: the top level project fires
+     * <code>buildFinished</code>, and the projects created by <code>&lt;ant&gt;</code> fire
+     * <code>subBuildFinished</code>. The listener is also copied to the projects created by a project which joined the
+     * session, whose end is ignored unless they joined the session too.
+     */
+    private static class SessionListener
+        implements SubBuildListener
+    {
+        public void buildFinished( BuildEvent event )
+        {
+            finished( event.getProject() );
+        }
+
+        public void subBuildFinished( BuildEvent event )
+        {
+            finished( event.getProject() );
+        }
+
+        public void subBuildStarted( BuildEvent event )
+        {
+        }
+
+        public void buildStarted( BuildEvent event )
+        {
+        }
+
+        public void messageLogged( BuildEvent event )
+        {
+        }
+
+        public void targetFinished( BuildEvent event )
+        {
+        }
+
+        public void targetStarted( BuildEvent event )
+        {
+        }
+
+        public void taskFinished( BuildEvent event )
+        {
+        }
+
+        public void taskStarted( BuildEvent event )
+        {
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.artifact.metadata.ArtifactMetadataRetrievalException;
+import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
+import org.apache.maven.artifact.metadata.ResolutionGroup;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.tools.ant.Project;
+
+/**
+ * Artifact metadata source keeping the dependencies read from the POMs of the repositories in a cache shared by all
+ * the tasks of a {@link BuildSession build}, so that a POM used by many tasks is read, parsed and interpolated once,
+ * even by tasks of different projects using different containers.
+ * <p>
+ * An entry is found by the artifact coordinates and scope, the local repository and the remote repositories, and is
+ * dropped if its POM file changed, for example when a task installs it again. Snapshots, artifacts filtered by the
+ * exclusions of a dependent and relocated artifacts are not cached, since their dependencies depend on more than
+ * these inputs. The dependencies are copied in and out of the cache, since the resolver modifies them. The cache is
+ * cleared when the session ends.
+ * </p>
+ *
+ * @since 2.1.4
+ */
+// the ArtifactMetadataSource methods of Maven 2 take raw Lists
+@SuppressWarnings( "rawtypes" )
+class CachingMetadataSource
+    implements ArtifactMetadataSource
+{
+    private static final int MAX_ENTRIES = 1024;
+
+    private static final Map<String, CachedGroup> CACHE =
+        new LinkedHashMap<String, CachedGroup>( MAX_ENTRIES, 0.75f, true )
+    {
+        protected boolean removeEldestEntry( Map.Entry<String, CachedGroup> eldest )
+        {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * The session of the cached entries.
+     */
+    private static long cacheSession = -1;
+
+    static
+    {
+        BuildSession.addListener( new BuildSession.Listener()
+        {
+            public void sessionEnded( Project project )
+            {
+                synchronized ( CACHE )
+                {
+                    CACHE.clear();
+                    cacheSession = -1;
+                }
+            }
+        } );
+    }
+
+    private final ArtifactMetadataSource delegate;
+
+    private final long session;
+
+    private final Project project;
+
+    CachingMetadataSource( ArtifactMetadataSource delegate, Project project )
+    {
+        this.delegate = delegate;
+        this.session = BuildSession.getSession( project );
+        this.project = project;
+
+        synchronized ( CACHE )
+        {
+            if ( cacheSession != session )
+            {
+                CACHE.clear();
+                cacheSession = session;
+            }
+        }
+    }
+
+    public ResolutionGroup retrieve( Artifact artifact, ArtifactRepository localRepository, List remoteRepositories )
+        throws ArtifactMetadataRetrievalException
+    {
+        if ( artifact.isSnapshot() || artifact.getDependencyFilter() != null )
+        {
+            return delegate.retrieve( artifact, localRepository, remoteRepositories );
+        }
+
+        String key = getKey( artifact, localRepository, remoteRepositories );
+        CachedGroup entry;
+        synchronized ( CACHE )
+        {
+            entry = cacheSession == session ? CACHE.get( key ) : null;
+        }
+        if ( entry != null && entry.isValid() )
+        {
+            project.log( "Using cached dependencies of " + artifact, Project.MSG_DEBUG );
+            if ( artifact.getDownloadUrl() == null && entry.group.getPomArtifact() != null )
+            {
+                artifact.setDownloadUrl( entry.group.getPomArtifact().getDownloadUrl() );
+            }
+            return copy( entry.group );
+        }
+
+        String id = artifact.getId();
+        ResolutionGroup group = delegate.retrieve( artifact, localRepository, remoteRepositories );
+        if ( group != null && id.equals( artifact.getId() ) )
+        {
+            synchronized ( CACHE )
+            {
+                if ( cacheSession == session )
+                {
+                    CACHE.put( key, new CachedGroup( copy( group ) ) );
+                }
+            }
+        }
+        return group;
+    }
+
+    public Artifact retrieveRelocatedArtifact( Artifact artifact, ArtifactRepository localRepository,
+                                               List remoteRepositories )
+        throws ArtifactMetadataRetrievalException
+    {
+        return delegate.retrieveRelocatedArtifact( artifact, localRepository, remoteRepositories );
+    }
+
+    public List retrieveAvailableVersions( Artifact artifact, ArtifactRepository localRepository,
+                                           List remoteRepositories )
+        throws ArtifactMetadataRetrievalException
+    {
+        return delegate.retrieveAvailableVersions( artifact, localRepository, remoteRepositories );
+    }
+
+    private static String getKey( Artifact artifact, ArtifactRepository localRepository,
+                                  List<?> remoteRepositories )
+    {
+        StringBuffer key = new StringBuffer( artifact.getId() );
+        key.append( '|' ).append( artifact.getScope() );
+        key.append( '|' ).append( localRepository.getBasedir() );
+        for ( Object o : remoteRepositories )
+        {
+            ArtifactRepository repository = (ArtifactRepository) o;
+            key.append( '|' ).append( repository.getId() ).append( '=' ).append( repository.getUrl() );
+        }
+        return key.toString();
+    }
+
+    private static ResolutionGroup copy( ResolutionGroup group )
+    {
+        Set<Artifact> artifacts = new LinkedHashSet<Artifact>();
+        for ( Object o : group.getArtifacts() )
+        {
+            artifacts.add( ArtifactUtils.copyArtifact( (Artifact) o ) );
+        }
+        List<?> repositories = group.getResolutionRepositories();
+        return new ResolutionGroup( group.getPomArtifact(), artifacts, new ArrayList<Object>( repositories ) );
+    }
+
+    private static class CachedGroup
+    {
+        private final ResolutionGroup group;
+
+        private final File pom;
+
+        private final long pomStamp;
+
+        CachedGroup( ResolutionGroup group )
+        {
+            this.group = group;
+            this.pom = group.getPomArtifact() == null ? null : group.getPomArtifact().getFile();
+            this.pomStamp = stamp( pom );
+        }
+
+        boolean isValid()
+        {
+            return stamp( pom ) == pomStamp;
+        }
+
+        private static long stamp( File file )
+        {
+            return file == null ? 0 : file.lastModified() * 31 + file.length();
+        }
+    }
+}
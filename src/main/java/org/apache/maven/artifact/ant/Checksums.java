@@ -0,0 +1,306 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.wagon.events.TransferEvent;
+import org.apache.maven.wagon.events.TransferListener;
+import org.apache.tools.ant.BuildException;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * The checksums of an artifact file, computed in the same pass as the copy or the upload of the file, for all the
+ * configured algorithms at once.
+ *
+ * @since 2.1.4
+ */
+class Checksums
+{
+    /**
+     * The supported algorithms, by the extension of their checksum files.
+     */
+    private static final Map<String, String> ALGORITHMS = new LinkedHashMap<String, String>();
+
+    static
+    {
+        ALGORITHMS.put( "md5", "MD5" );
+        ALGORITHMS.put( "sha1", "SHA-1" );
+        ALGORITHMS.put( "sha256", "SHA-256" );
+        ALGORITHMS.put( "sha512", "SHA-512" );
+    }
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Map<String, MessageDigest> digests = new LinkedHashMap<String, MessageDigest>();
+
+    /**
+     * @param extensions the extensions of the checksum files, as returned by {@link #parse(String)}
+     */
+    Checksums( List<String> extensions )
+    {
+        for ( String extension : extensions )
+        {
+            try
+            {
+                digests.put( extension, MessageDigest.getInstance( ALGORITHMS.get( extension ) ) );
+            }
+            catch ( NoSuchAlgorithmException e )
+            {
+                throw new BuildException( "Checksum algorithm " + ALGORITHMS.get( extension ) + " is not available" );
+            }
+        }
+    }
+
+    /**
+     * Parse a comma separated list of checksum file extensions: <code>md5</code>, <code>sha1</code>,
+     * <code>sha256</code> or <code>sha512</code>.
+     *
+     * @param checksums the list
+     * @return the extensions, in the order of the list
+     */
+    static List<String> parse( String checksums )
+    {
+        List<String> extensions = new ArrayList<String>();
+        for ( String extension : checksums.split( "," ) )
+        {
+            extension = extension.trim().toLowerCase();
+            if ( extension.length() == 0 )
+            {
+                continue;
+            }
+            if ( !ALGORITHMS.containsKey( extension ) )
+            {
+                throw new BuildException( "Unsupported checksum '" + extension + "', must be one of "
+                    + ALGORITHMS.keySet() );
+            }
+            if ( !extensions.contains( extension ) )
+            {
+                extensions.add( extension );
+            }
+        }
+        return extensions;
+    }
+
+    void reset()
+    {
+        for ( MessageDigest digest : digests.values() )
+        {
+            digest.reset();
+        }
+    }
+
+    void update( byte[] buffer, int offset, int length )
+    {
+        for ( MessageDigest digest : digests.values() )
+        {
+            digest.update( buffer, offset, length );
+        }
+    }
+
+    /**
+     * Complete the checksums of the bytes given since the last reset.
+     *
+     * @return the checksums as hexadecimal digits, by the extension of their files
+     */
+    Map<String, String> digest()
+    {
+        Map<String, String> checksums = new LinkedHashMap<String, String>();
+        for ( Map.Entry<String, MessageDigest> entry : digests.entrySet() )
+        {
+            byte[] bytes = entry.getValue().digest();
+            char[] hex = new char[bytes.length * 2];
+            for ( int i = 0; i < bytes.length; i++ )
+            {
+                hex[i * 2] = HEX_DIGITS[( bytes[i] >> 4 ) & 0x0f];
+                hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+            }
+            checksums.put( entry.getKey(), new String( hex ) );
+        }
+        return checksums;
+    }
+
+    /**
+     * Compute the checksums of a file.
+     *
+     * @return the checksums, by the extension of their files
+     * @throws IOException if the file can't be read
+     */
+    Map<String, String> read( File file )
+        throws IOException
+    {
+        reset();
+
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( file );
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ( ( n = in.read( buffer ) ) != -1 )
+            {
+                update( buffer, 0, n );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+
+        return digest();
+    }
+
+    /**
+     * Copy a file, computing its checksums from the bytes read for the copy. If the source is the destination, only
+     * the checksums are computed.
+     *
+     * @return the checksums, by the extension of their files
+     * @throws IOException if the file can't be copied
+     */
+    Map<String, String> copy( File source, File destination )
+        throws IOException
+    {
+        if ( source.getCanonicalFile().equals( destination.getCanonicalFile() ) )
+        {
+            return read( source );
+        }
+
+        reset();
+        destination.getParentFile().mkdirs();
+
+        InputStream in = null;
+        OutputStream out = null;
+        try
+        {
+            in = new FileInputStream( source );
+            out = new FileOutputStream( destination );
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ( ( n = in.read( buffer ) ) != -1 )
+            {
+                update( buffer, 0, n );
+                out.write( buffer, 0, n );
+            }
+            out.close();
+            out = null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+            IOUtil.close( out );
+        }
+        destination.setLastModified( source.lastModified() );
+
+        return digest();
+    }
+
+    /**
+     * Write the checksum files next to a file.
+     *
+     * @param file the file
+     * @param checksums the checksums, by the extension of their files
+     * @throws IOException if a checksum file can't be written
+     */
+    static void write( File file, Map<String, String> checksums )
+        throws IOException
+    {
+        for ( Map.Entry<String, String> checksum : checksums.entrySet() )
+        {
+            File checksumFile = new File( file.getPath() + "." + checksum.getKey() );
+            FileUtils.fileWrite( checksumFile.getPath(), "UTF-8", checksum.getValue() );
+            LocalRepositoryIndex.fileAdded( checksumFile );
+        }
+    }
+
+    /**
+     * Whether the checksum files of a file all exist.
+     */
+    boolean exist( File file )
+    {
+        for ( String extension : digests.keySet() )
+        {
+            if ( !new File( file.getPath() + "." + extension ).isFile() )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A transfer listener computing the checksums of the uploaded bytes.
+     */
+    class Observer
+        implements TransferListener
+    {
+        private Map<String, String> checksums;
+
+        public void transferInitiated( TransferEvent transferEvent )
+        {
+        }
+
+        public void transferStarted( TransferEvent transferEvent )
+        {
+            checksums = null;
+            reset();
+        }
+
+        public void transferProgress( TransferEvent transferEvent, byte[] buffer, int length )
+        {
+            update( buffer, 0, length );
+        }
+
+        public void transferCompleted( TransferEvent transferEvent )
+        {
+            checksums = digest();
+        }
+
+        public void transferError( TransferEvent transferEvent )
+        {
+            checksums = null;
+            reset();
+        }
+
+        public void debug( String message )
+        {
+        }
+
+        /**
+         * @return the checksums of the last completed transfer, or <code>null</code>
+         */
+        Map<String, String> getChecksums()
+        {
+            return checksums;
+        }
+    }
+}
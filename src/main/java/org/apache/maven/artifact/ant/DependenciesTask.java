@@ -21,19 +21,26 @@ package org.apache.maven.artifact.ant;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.ant.util.AntBuildWriter;
-import org.apache.maven.artifact.ant.util.AntTaskModified;
-import org.apache.maven.artifact.ant.util.AntUtil;
+import org.apache.maven.artifact.ant.util.DaemonThreadFactory;
+import org.apache.maven.artifact.ant.util.DependencyRefsReader;
+import org.apache.maven.artifact.ant.util.DependencyRefsWriter;
 import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.manager.WagonManager;
 import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
 import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
 import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
 import org.apache.maven.artifact.resolver.ArtifactResolutionException;
 import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
 import org.apache.maven.artifact.resolver.ArtifactResolver;
+import org.apache.maven.artifact.resolver.ResolutionNode;
 import org.apache.maven.artifact.resolver.filter.AndArtifactFilter;
 import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
 import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
+import org.apache.maven.artifact.versioning.VersionRange;
 import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.artifact.InvalidDependencyVersionException;
 import org.apache.maven.project.artifact.MavenMetadataSource;
 import org.apache.tools.ant.BuildException;
@@ -44,15 +51,24 @@ import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.StringUtils;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * Dependencies task, using maven-artifact.
@@ -75,6 +91,21 @@ public class DependenciesTask
 
     public static final String DEFAULT_ANT_BUILD_FILE = "target/build-dependencies.xml";
 
+    /**
+     * The directory holding the dependency refs cache files, one per cache key.
+     */
+    public static final String DEFAULT_ANT_BUILD_DIR = "target/build-dependencies";
+
+    /**
+     * Lock mode resolving the dependencies and writing the lock file.
+     */
+    public static final String LOCK_MODE_WRITE = "write";
+
+    /**
+     * Lock mode taking the artifacts from the lock file, without resolving the dependency graph.
+     */
+    public static final String LOCK_MODE_USE = "use";
+
     private List<Dependency> dependencies = new ArrayList<Dependency>();
 
     /**
@@ -134,6 +165,39 @@ public class DependenciesTask
      */
     private boolean cacheDependencyRefs;
 
+    /**
+     * The number of threads used to download the POMs of the dependency graph and the sources and javadoc
+     * attachments, or 0 to download them serially.
+     */
+    private int parallel;
+
+    /**
+     * The number of minutes during which an artifact that was not found in a remote repository is not searched
+     * there again, or 0 to always search.
+     */
+    private int notFoundCacheTtl;
+
+    /**
+     * The lock file listing the resolved artifacts.
+     */
+    private File lockFile;
+
+    /**
+     * Whether to resolve and write the lock file, or to use the artifacts it lists without resolving.
+     */
+    private String lockMode = LOCK_MODE_WRITE;
+
+    /**
+     * The file the resolution profile is written to, in the Chrome trace event format, or <code>null</code> to not
+     * profile the resolution.
+     */
+    private File profileFile;
+
+    /**
+     * The number of slowest dependencies logged when profiling the resolution.
+     */
+    private int profileTop = 10;
+
     /**
      * Main task execution.  Called by parent execute().
      */
@@ -150,22 +214,28 @@ public class DependenciesTask
             throw new BuildException( "You cannot specify both dependencies and a pom in the dependencies task" );
         }
 
+        ArtifactRepository localRepo = createLocalArtifactRepository();
+        log( "Using local repository: " + localRepo.getBasedir(), Project.MSG_VERBOSE );
+
+        Pom pom = initializeDependenciesPom( localRepo );
+
+        List<ArtifactRepository> remoteArtifactRepositories = createRemoteArtifactRepositories( pom.getRepositories() );
+
         // Try to load dependency refs from an existing Ant cache file
+        String cacheKey = null;
         if ( isCacheDependencyRefs() )
         {
-            if ( getDependencyRefsBuildFile() == null )
-            {
-                setDependencyRefsBuildFile( DEFAULT_ANT_BUILD_FILE );
-            }
+            cacheKey = computeCacheKey( localRepo, pom, remoteArtifactRepositories );
 
-            if ( checkCachedDependencies() )
+            File cacheFile = getDependencyRefsFile( cacheKey );
+            if ( checkCachedDependencies( cacheFile, cacheKey ) )
             {
-                log( "Dependency refs loaded from file: " + getDependencyRefsBuildFile(), Project.MSG_VERBOSE );
+                log( "Dependency refs loaded from file: " + cacheFile, Project.MSG_VERBOSE );
                 return;
             }
         }
 
-        doExecuteResolution();
+        doExecuteResolution( localRepo, pom, remoteArtifactRepositories, cacheKey );
     }
 
     protected ArtifactResolutionResult doExecuteResolution()
@@ -173,11 +243,17 @@ public class DependenciesTask
         ArtifactRepository localRepo = createLocalArtifactRepository();
         log( "Using local repository: " + localRepo.getBasedir(), Project.MSG_VERBOSE );
 
-        // Look up required resources from the plexus container
-        ArtifactResolver resolver = (ArtifactResolver) lookup( ArtifactResolver.ROLE );
-        ArtifactFactory artifactFactory = (ArtifactFactory) lookup( ArtifactFactory.ROLE );
-        MavenMetadataSource metadataSource = (MavenMetadataSource) lookup( ArtifactMetadataSource.ROLE );
+        Pom pom = initializeDependenciesPom( localRepo );
 
+        return doExecuteResolution( localRepo, pom, createRemoteArtifactRepositories( pom.getRepositories() ), null );
+    }
+
+    /**
+     * Initialize the POM holding the dependencies to resolve: either the POM given to the task, or a dummy POM if the
+     * dependencies are given as nested elements.
+     */
+    private Pom initializeDependenciesPom( ArtifactRepository localRepo )
+    {
         Pom pom = initializePom( localRepo );
         if ( pom != null )
         {
@@ -189,6 +265,17 @@ public class DependenciesTask
             // originating Artifact below...
             pom = createDummyPom( localRepo );
         }
+        return pom;
+    }
+
+    private ArtifactResolutionResult doExecuteResolution( ArtifactRepository localRepo, Pom pom,
+                                                          List<ArtifactRepository> remoteArtifactRepositories,
+                                                          String cacheKey )
+    {
+        // Look up required resources from the plexus container
+        ArtifactResolver resolver = (ArtifactResolver) lookup( ArtifactResolver.ROLE );
+        ArtifactFactory artifactFactory = (ArtifactFactory) lookup( ArtifactFactory.ROLE );
+        MavenMetadataSource metadataSource = (MavenMetadataSource) lookup( ArtifactMetadataSource.ROLE );
 
         if ( dependencies.isEmpty() )
         {
@@ -220,48 +307,75 @@ public class DependenciesTask
 
         log( "Resolving dependencies...", Project.MSG_VERBOSE );
 
-        ArtifactResolutionResult result;
-
-        List<ArtifactRepository> remoteArtifactRepositories = createRemoteArtifactRepositories( pom.getRepositories() );
-
-        try
+        ExecutorService executor = null;
+        if ( parallel > 0 )
         {
-            Set<Artifact> artifacts = MavenMetadataSource.createArtifacts( artifactFactory, dependencies, null, null, null );
-
-            Artifact pomArtifact = artifactFactory.createBuildArtifact( pom.getGroupId(), pom.getArtifactId(),
-                pom.getVersion(), pom.getPackaging() );
+            log( "Using " + parallel + " threads to download dependencies metadata", Project.MSG_VERBOSE );
+            executor = DaemonThreadFactory.newFixedThreadPool( "maven-ant-tasks-resolver", parallel );
+        }
 
-            List<AntResolutionListener> listeners = Collections.singletonList( new AntResolutionListener( getProject() ) );
+        NotFoundCache notFoundCache = null;
+        if ( notFoundCacheTtl > 0 && !getSettings().isOffline() )
+        {
+            notFoundCache = new NotFoundCache( localRepo, (WagonManager) lookup( WagonManager.ROLE ),
+                                               notFoundCacheTtl * 60L * 1000L );
+        }
 
-            Map<String,Artifact> managedDependencies = pom.getMavenProject().getManagedVersionMap();
+        String lockKey = null;
+        DependencyLock lock = null;
+        if ( lockFile != null )
+        {
+            lockKey = computeLockKey( pom );
+            lock = readLock( lockKey );
+        }
 
-            ArtifactFilter filter = null;
-            if ( useScope != null )
-            {
-                filter = new ScopeArtifactFilter( useScope );
-            }
-            if ( scopes != null )
+        try
+        {
+            return doExecuteResolution( localRepo, resolver, artifactFactory, metadataSource, pom,
+                                        remoteArtifactRepositories, executor, notFoundCache, cacheKey, lockKey,
+                                        lock );
+        }
+        finally
+        {
+            if ( executor != null )
             {
-                filter = new SpecificScopesArtifactFilter( scopes );
+                executor.shutdownNow();
             }
-            if ( type != null )
+            if ( notFoundCache != null )
             {
-                ArtifactFilter typeArtifactFilter = new TypesArtifactFilter( type );
-                if ( filter != null )
+                try
                 {
-                    AndArtifactFilter andFilter = new AndArtifactFilter();
-                    andFilter.add( filter );
-                    andFilter.add( typeArtifactFilter );
-                    filter = andFilter;
+                    notFoundCache.save();
                 }
-                else
+                catch ( IOException e )
                 {
-                    filter = typeArtifactFilter;
+                    log( "Unable to save the cache of missing artifacts: " + e.getMessage(), Project.MSG_WARN );
                 }
             }
+        }
+    }
+
+    private ArtifactResolutionResult doExecuteResolution( ArtifactRepository localRepo, ArtifactResolver resolver,
+                                                          ArtifactFactory artifactFactory,
+                                                          MavenMetadataSource metadataSource, Pom pom,
+                                                          List<ArtifactRepository> remoteArtifactRepositories,
+                                                          ExecutorService executor, NotFoundCache notFoundCache,
+                                                          String cacheKey, String lockKey, DependencyLock lock )
+    {
+        ArtifactResolutionResult result;
 
-            result = resolver.resolveTransitively( artifacts, pomArtifact, managedDependencies, localRepo,
-                                                   remoteArtifactRepositories, metadataSource, filter, listeners );
+        try
+        {
+            if ( lock != null )
+            {
+                result = resolveLockedArtifacts( lock, resolver, artifactFactory, localRepo,
+                                                 remoteArtifactRepositories, executor );
+            }
+            else
+            {
+                result = resolveTransitively( localRepo, resolver, artifactFactory, metadataSource, pom,
+                                              remoteArtifactRepositories, executor, notFoundCache );
+            }
         }
         catch ( ArtifactResolutionException e )
         {
@@ -276,6 +390,20 @@ public class DependenciesTask
             throw new BuildException( "Invalid dependency version: " + e.getMessage(), e );
         }
 
+        if ( lockKey != null && lock == null )
+        {
+            log( "Writing dependency lock file: " + lockFile, Project.MSG_VERBOSE );
+            try
+            {
+                DependencyLock.write( lockFile, lockKey, getArtifacts( result ) );
+            }
+            catch ( IOException e )
+            {
+                throw new BuildException( "Unable to write dependency lock file " + lockFile + ": " + e.getMessage(),
+                                          e );
+            }
+        }
+
         FileSet dependencyFileSet = createFileSet();
 
         FileSet sourcesFileSet = createFileSet();
@@ -297,7 +425,22 @@ public class DependenciesTask
             pathFilter = null;
         }
 
-        for ( Iterator<Artifact> i = result.getArtifacts().iterator(); i.hasNext(); )
+        // submit the sources and javadoc lookups first, so that they run concurrently when a pool is available
+        List<Future<Artifact>> sources = null;
+        if ( sourcesFilesetId != null )
+        {
+            sources = resolveClassifier( artifactFactory, resolver, remoteArtifactRepositories, localRepo,
+                                         getArtifacts( result ), "sources", executor, notFoundCache );
+        }
+
+        List<Future<Artifact>> javadocs = null;
+        if ( javadocFilesetId != null )
+        {
+            javadocs = resolveClassifier( artifactFactory, resolver, remoteArtifactRepositories, localRepo,
+                                          getArtifacts( result ), "javadoc", executor, notFoundCache );
+        }
+
+        for ( Iterator<Artifact> i = getArtifacts( result ).iterator(); i.hasNext(); )
         {
             Artifact artifact = i.next();
 
@@ -305,18 +448,20 @@ public class DependenciesTask
 
             versions.add( artifact.getVersion() );
 
-            if ( sourcesFilesetId != null )
-            {
-                resolveSource( artifactFactory, resolver, remoteArtifactRepositories, localRepo,
-                               artifact, "sources", sourcesFileSet );
-            }
+            Artifact pomArtifact = artifactFactory.createProjectArtifact( artifact.getGroupId(),
+                                                                          artifact.getArtifactId(),
+                                                                          artifact.getVersion() );
+            LocalRepositoryIndex.fileResolved( new File( localRepo.getBasedir(), localRepo.pathOf( pomArtifact ) ) );
+        }
 
-            if ( javadocFilesetId != null )
-            {
-                resolveSource( artifactFactory, resolver, remoteArtifactRepositories, localRepo,
-                               artifact, "javadoc", javadocsFileSet );
-            }
+        if ( sources != null )
+        {
+            addClassifierToResult( localRepo, sources, sourcesFileSet );
+        }
 
+        if ( javadocs != null )
+        {
+            addClassifierToResult( localRepo, javadocs, javadocsFileSet );
         }
 
         defineFilesetReference( filesetId, dependencyFileSet );
@@ -337,120 +482,592 @@ public class DependenciesTask
         }
 
         // Write the dependency information to an Ant build file.
-        if ( getDependencyRefsBuildFile() != null || this.isCacheDependencyRefs() )
+        if ( getDependencyRefsBuildFile() != null )
         {
-            if ( getDependencyRefsBuildFile() == null || getDependencyRefsBuildFile().equals( "default" ) )
+            writeAntBuildFile( result, dependencyFileSet, sourcesFileSet, javadocsFileSet );
+        }
+
+        // Write the dependency information to the cache.
+        if ( cacheKey != null )
+        {
+            writeDependencyRefs( cacheKey, result, dependencyFileSet, sourcesFileSet, javadocsFileSet );
+        }
+
+        return result;
+    }
+
+    /**
+     * Resolve the dependency graph.
+     */
+    private ArtifactResolutionResult resolveTransitively( ArtifactRepository localRepo, ArtifactResolver resolver,
+                                                          ArtifactFactory artifactFactory,
+                                                          MavenMetadataSource metadataSource, Pom pom,
+                                                          List<ArtifactRepository> remoteArtifactRepositories,
+                                                          ExecutorService executor, NotFoundCache notFoundCache )
+        throws ArtifactResolutionException, ArtifactNotFoundException, InvalidDependencyVersionException
+    {
+        Set<Artifact> artifacts = MavenMetadataSource.createArtifacts( artifactFactory, dependencies, null, null, null );
+
+        Artifact pomArtifact = artifactFactory.createBuildArtifact( pom.getGroupId(), pom.getArtifactId(),
+            pom.getVersion(), pom.getPackaging() );
+
+        ResolutionProfiler profiler = null;
+        AntResolutionListener listener;
+        if ( profileFile != null )
+        {
+            profiler = new ResolutionProfiler( getProject(), localRepo );
+            listener = profiler;
+        }
+        else
+        {
+            listener = new AntResolutionListener( getProject() );
+        }
+        List<AntResolutionListener> listeners = Collections.singletonList( listener );
+
+        Map<String,Artifact> managedDependencies = pom.getMavenProject().getManagedVersionMap();
+
+        ArtifactFilter filter = null;
+        if ( useScope != null )
+        {
+            filter = new ScopeArtifactFilter( useScope );
+        }
+        if ( scopes != null )
+        {
+            filter = new SpecificScopesArtifactFilter( scopes );
+        }
+        if ( type != null )
+        {
+            ArtifactFilter typeArtifactFilter = new TypesArtifactFilter( type );
+            if ( filter != null )
+            {
+                AndArtifactFilter andFilter = new AndArtifactFilter();
+                andFilter.add( filter );
+                andFilter.add( typeArtifactFilter );
+                filter = andFilter;
+            }
+            else
             {
-                setDependencyRefsBuildFile( DEFAULT_ANT_BUILD_FILE );
+                filter = typeArtifactFilter;
             }
-            log( "Building ant file: " + getDependencyRefsBuildFile() );
-            AntBuildWriter antBuildWriter = new AntBuildWriter();
-            File antBuildFile = FileUtils.resolveFile( getProject().getBaseDir(), getDependencyRefsBuildFile() );
+        }
+
+        ArtifactMetadataSource source = new CachingMetadataSource( metadataSource, getProject() );
+        if ( notFoundCache != null )
+        {
+            source = new NotFoundMetadataSource( source, artifactFactory, notFoundCache, getProject() );
+        }
+        if ( executor != null )
+        {
+            ParallelMetadataSource parallelSource =
+                new ParallelMetadataSource( source, resolver, artifactFactory, managedDependencies, filter,
+                                            executor, notFoundCache, getProject() );
+            parallelSource.prefetch( artifacts, null, localRepo, remoteArtifactRepositories );
+            source = parallelSource;
+        }
+        if ( profiler == null )
+        {
+            return resolver.resolveTransitively( artifacts, pomArtifact, managedDependencies, localRepo,
+                                                 remoteArtifactRepositories, source, filter, listeners );
+        }
+
+        try
+        {
+            return resolver.resolveTransitively( artifacts, pomArtifact, managedDependencies, localRepo,
+                                                 remoteArtifactRepositories, profiler.profile( source ), filter,
+                                                 listeners );
+        }
+        finally
+        {
+            profiler.finish();
+            profiler.report( profileTop );
             try
             {
-                antBuildWriter.openAntBuild( antBuildFile, "maven-dependencies", "init-dependencies" );
-                antBuildWriter.openTarget( "init-dependencies" );
-                antBuildWriter.writeEcho( "Loading dependency paths from file: " + antBuildFile.getAbsolutePath() );
+                profiler.writeTrace( profileFile );
+                log( "Resolution profile written to " + profileFile, Project.MSG_VERBOSE );
+            }
+            catch ( IOException e )
+            {
+                log( "Unable to write the resolution profile to " + profileFile + ": " + e.getMessage(),
+                     Project.MSG_WARN );
+            }
+        }
+    }
 
-                for ( Iterator<Artifact> i = result.getArtifacts().iterator(); i.hasNext(); )
-                {
-                    Artifact artifact = i.next();
-                    String conflictId = artifact.getDependencyConflictId();
-                    antBuildWriter.writeProperty( conflictId, artifact.getFile().getAbsolutePath() );
-                    FileSet singleArtifactFileSet = (FileSet) getProject().getReference( conflictId );
-                    antBuildWriter.writeFileSet( singleArtifactFileSet, conflictId );
-                }
+    /**
+     * Read the lock file if it is to be used.
+     *
+     * @return the lock, or <code>null</code> if the dependencies are to be resolved and the lock written
+     */
+    private DependencyLock readLock( String lockKey )
+    {
+        if ( !LOCK_MODE_USE.equals( lockMode ) )
+        {
+            return null;
+        }
+        if ( !lockFile.exists() )
+        {
+            log( "Dependency lock file " + lockFile + " does not exist: resolving dependencies to create it" );
+            return null;
+        }
 
-                if ( pathId != null )
-                {
-                    Path thePath = (Path) getProject().getReference( pathId );
-                    antBuildWriter.writePath( thePath, pathId );
-                }
+        DependencyLock lock;
+        try
+        {
+            lock = DependencyLock.read( lockFile );
+        }
+        catch ( IOException e )
+        {
+            throw new BuildException( "Unable to read dependency lock file " + lockFile + ": " + e.getMessage(), e );
+        }
+        if ( !lockKey.equals( lock.getKey() ) )
+        {
+            throw new BuildException( "Dependency lock file " + lockFile + " does not match the dependencies: "
+                + "run with lockMode=\"" + LOCK_MODE_WRITE + "\" to update it" );
+        }
+        log( "Using dependency lock file: " + lockFile, Project.MSG_VERBOSE );
+        return lock;
+    }
 
-                if ( filesetId != null )
-                {
-                    antBuildWriter.writeFileSet( dependencyFileSet, filesetId );
-                }
-                if ( sourcesFilesetId != null )
-                {
-                    antBuildWriter.writeFileSet( sourcesFileSet, sourcesFilesetId );
-                }
-                if ( javadocFilesetId != null )
+    /**
+     * Get the artifacts listed in the lock file, downloading the ones missing from the local repository from the
+     * repository they were resolved from, and checking their SHA-1. No metadata is read.
+     */
+    private ArtifactResolutionResult resolveLockedArtifacts( DependencyLock lock, final ArtifactResolver resolver,
+                                                             ArtifactFactory artifactFactory,
+                                                             final ArtifactRepository localRepo,
+                                                             List<ArtifactRepository> remoteArtifactRepositories,
+                                                             ExecutorService executor )
+        throws ArtifactResolutionException, ArtifactNotFoundException
+    {
+        Set<ResolutionNode> nodes = new LinkedHashSet<ResolutionNode>();
+        List<FutureTask<Artifact>> futures = new ArrayList<FutureTask<Artifact>>();
+        for ( final DependencyLock.Entry entry : lock.getEntries() )
+        {
+            VersionRange version = VersionRange.createFromVersion( entry.getVersion() );
+            final Artifact artifact = artifactFactory.createDependencyArtifact( entry.getGroupId(),
+                entry.getArtifactId(), version, entry.getType(), entry.getClassifier(), entry.getScope() );
+            final List<ArtifactRepository> repositories =
+                getLockedRepositories( entry, remoteArtifactRepositories );
+            nodes.add( new ResolutionNode( artifact, repositories ) );
+
+            FutureTask<Artifact> future = new FutureTask<Artifact>( new Callable<Artifact>()
+            {
+                public Artifact call()
+                    throws Exception
                 {
-                    antBuildWriter.writeFileSet( sourcesFileSet, javadocFilesetId );
+                    File file;
+                    if ( entry.getSystemPath() != null )
+                    {
+                        file = new File( entry.getSystemPath() );
+                        if ( !file.isFile() )
+                        {
+                            throw new ArtifactNotFoundException( "System artifact: " + artifact
+                                + " not found in path: " + file, artifact );
+                        }
+                    }
+                    else
+                    {
+                        file = new File( localRepo.getBasedir(), localRepo.pathOf( artifact ) );
+                        if ( !LocalRepositoryIndex.exists( file ) )
+                        {
+                            resolver.resolve( artifact, repositories, localRepo );
+                            file = artifact.getFile();
+                        }
+                    }
+
+                    // one digest per artifact: the checksums are computed concurrently
+                    Checksums checksums = new Checksums( Collections.singletonList( "sha1" ) );
+                    String sha1;
+                    try
+                    {
+                        sha1 = checksums.read( file ).get( "sha1" );
+                    }
+                    catch ( FileNotFoundException e )
+                    {
+                        if ( entry.getSystemPath() != null || artifact.isResolved() )
+                        {
+                            throw e;
+                        }
+                        // held by the index of the local repository, but removed by another tool
+                        LocalRepositoryIndex.fileRemoved( file );
+                        resolver.resolve( artifact, repositories, localRepo );
+                        file = artifact.getFile();
+                        sha1 = checksums.read( file ).get( "sha1" );
+                    }
+                    artifact.setFile( file );
+                    artifact.setResolved( true );
+
+                    if ( !sha1.equals( entry.getSha1() ) )
+                    {
+                        throw new BuildException( "SHA-1 of " + file + " is " + sha1 + " but the dependency lock file "
+                            + "expects " + entry.getSha1() + " for " + entry );
+                    }
+                    return artifact;
                 }
+            } );
+            futures.add( future );
+            if ( executor != null )
+            {
+                executor.execute( future );
+            }
+            else
+            {
+                future.run();
+            }
+        }
 
-                String versionsList = getProject().getProperty( versionsId );
-                if ( versionsList != null )
+        Throwable failure = null;
+        for ( FutureTask<Artifact> future : futures )
+        {
+            try
+            {
+                future.get();
+            }
+            catch ( ExecutionException e )
+            {
+                if ( failure == null )
                 {
-                    antBuildWriter.writeProperty( versionsId, versionsList );
+                    failure = e.getCause();
                 }
+            }
+            catch ( InterruptedException e )
+            {
+                throw new BuildException( "Interrupted while resolving the locked dependencies", e );
+            }
+        }
+        if ( failure instanceof ArtifactResolutionException )
+        {
+            throw (ArtifactResolutionException) failure;
+        }
+        if ( failure instanceof ArtifactNotFoundException )
+        {
+            throw (ArtifactNotFoundException) failure;
+        }
+        if ( failure instanceof BuildException )
+        {
+            throw (BuildException) failure;
+        }
+        if ( failure != null )
+        {
+            throw new BuildException( "Unable to resolve the locked dependencies: " + failure.getMessage(), failure );
+        }
 
-                antBuildWriter.closeTarget();
-                antBuildWriter.closeAntBuild();
+        ArtifactResolutionResult result = new ArtifactResolutionResult();
+        result.setArtifactResolutionNodes( nodes );
+        return result;
+    }
+
+    /**
+     * Get the repositories to download a locked artifact from: the repository it was resolved from when it is
+     * still configured, or all the repositories.
+     */
+    private static List<ArtifactRepository> getLockedRepositories( DependencyLock.Entry entry,
+                                                                   List<ArtifactRepository> remoteRepositories )
+    {
+        for ( ArtifactRepository repository : remoteRepositories )
+        {
+            if ( repository.getId().equals( entry.getRepositoryId() ) )
+            {
+                return Collections.singletonList( repository );
+            }
+        }
+        return remoteRepositories;
+    }
+
+    private void writeAntBuildFile( ArtifactResolutionResult result, FileSet dependencyFileSet,
+                                    FileSet sourcesFileSet, FileSet javadocsFileSet )
+    {
+        String fileName = getDependencyRefsBuildFile();
+        if ( fileName.equals( "default" ) )
+        {
+            fileName = DEFAULT_ANT_BUILD_FILE;
+        }
+        File antBuildFile = FileUtils.resolveFile( getProject().getBaseDir(), fileName );
+        log( "Building ant file: " + antBuildFile );
+        AntBuildWriter antBuildWriter = new AntBuildWriter();
+        try
+        {
+            antBuildWriter.openAntBuild( antBuildFile, "maven-dependencies", "init-dependencies" );
+            antBuildWriter.openTarget( "init-dependencies" );
+            antBuildWriter.writeEcho( "Loading dependency paths from file: " + antBuildFile.getAbsolutePath() );
+
+            for ( Iterator<Artifact> i = getArtifacts( result ).iterator(); i.hasNext(); )
+            {
+                Artifact artifact = i.next();
+                String conflictId = artifact.getDependencyConflictId();
+                antBuildWriter.writeProperty( conflictId, artifact.getFile().getAbsolutePath() );
+                FileSet singleArtifactFileSet = (FileSet) getProject().getReference( conflictId );
+                antBuildWriter.writeFileSet( singleArtifactFileSet, conflictId );
+            }
+
+            if ( pathId != null )
+            {
+                Path thePath = (Path) getProject().getReference( pathId );
+                antBuildWriter.writePath( thePath, pathId );
+            }
+
+            if ( filesetId != null )
+            {
+                antBuildWriter.writeFileSet( dependencyFileSet, filesetId );
+            }
+            if ( sourcesFilesetId != null )
+            {
+                antBuildWriter.writeFileSet( sourcesFileSet, sourcesFilesetId );
+            }
+            if ( javadocFilesetId != null )
+            {
+                antBuildWriter.writeFileSet( javadocsFileSet, javadocFilesetId );
+            }
+
+            String versionsList = getProject().getProperty( versionsId );
+            if ( versionsList != null )
+            {
+                antBuildWriter.writeProperty( versionsId, versionsList );
+            }
+
+            antBuildWriter.closeTarget();
+            antBuildWriter.closeAntBuild();
+        }
+        catch ( IOException e )
+        {
+            throw new BuildException ( "Unable to write ant build: " + e);
+        }
+    }
+
+    /**
+     * Write the properties and references defined by the resolution to the cache, so that
+     * {@link #checkCachedDependencies(File, String)} can define them again without resolving.
+     */
+    private void writeDependencyRefs( String cacheKey, ArtifactResolutionResult result, FileSet dependencyFileSet,
+                                      FileSet sourcesFileSet, FileSet javadocsFileSet )
+    {
+        File refsFile = getDependencyRefsFile( cacheKey );
+        log( "Writing dependency refs cache: " + refsFile, Project.MSG_VERBOSE );
+        DependencyRefsWriter writer = new DependencyRefsWriter();
+        try
+        {
+            writer.open( refsFile, cacheKey );
+
+            for ( Iterator<Artifact> i = getArtifacts( result ).iterator(); i.hasNext(); )
+            {
+                Artifact artifact = i.next();
+                String conflictId = artifact.getDependencyConflictId();
+                writer.writeProperty( conflictId, artifact.getFile().getAbsolutePath() );
+                writer.writeFileSet( (FileSet) getProject().getReference( conflictId ), conflictId );
+            }
+
+            if ( pathId != null )
+            {
+                writer.writePath( (Path) getProject().getReference( pathId ), pathId );
+            }
+            if ( filesetId != null )
+            {
+                writer.writeFileSet( dependencyFileSet, filesetId );
+            }
+            if ( sourcesFilesetId != null )
+            {
+                writer.writeFileSet( sourcesFileSet, sourcesFilesetId );
+            }
+            if ( javadocFilesetId != null )
+            {
+                writer.writeFileSet( javadocsFileSet, javadocFilesetId );
+            }
+
+            String versionsList = getProject().getProperty( versionsId );
+            if ( versionsList != null )
+            {
+                writer.writeNewProperty( versionsId, versionsList );
+            }
+
+            writer.close();
+        }
+        catch ( IOException e )
+        {
+            // the next build will resolve again
+            log( "Unable to write dependency refs cache " + refsFile + ": " + e.getMessage(), Project.MSG_WARN );
+            writer.abort();
+        }
+    }
+
+    /**
+     * Compute the key of the dependency refs cache: a digest of everything the resolution result depends on, that is
+     * the dependencies and their management, the remote repositories after mirror selection, the parent POMs, the
+     * filters and the ids of the generated references.
+     *
+     * @return the key, as hexadecimal digits
+     */
+    private String computeCacheKey( ArtifactRepository localRepo, Pom pom,
+                                    List<ArtifactRepository> remoteArtifactRepositories )
+    {
+        ResolutionCacheKey key = new ResolutionCacheKey();
+
+        key.add( "localRepository", localRepo.getBasedir() );
+        key.add( "offline", Boolean.valueOf( getSettings().isOffline() ) );
+
+        addDependencies( key, pom );
+
+        for ( ArtifactRepository repository : remoteArtifactRepositories )
+        {
+            key.add( "repository", repository.getId() + "|" + repository.getUrl() + "|"
+                + repository.getLayout().getClass().getName() );
+            key.add( "releases", toString( repository.getReleases() ) );
+            key.add( "snapshots", toString( repository.getSnapshots() ) );
+        }
+
+        key.add( "useScope", useScope );
+        key.add( "scopes", scopes );
+        key.add( "type", type );
+        key.add( "pathType", pathType );
+        key.add( "pathId", pathId );
+        key.add( "filesetId", filesetId );
+        key.add( "sourcesFilesetId", sourcesFilesetId );
+        key.add( "javadocFilesetId", javadocFilesetId );
+        key.add( "versionsId", versionsId );
+
+        if ( lockFile != null && LOCK_MODE_USE.equals( lockMode ) )
+        {
+            try
+            {
+                key.addFile( "lockFile", lockFile );
             }
             catch ( IOException e )
             {
-                throw new BuildException ( "Unable to write ant build: " + e);
+                throw new BuildException( "Unable to read dependency lock file: " + e.getMessage(), e );
             }
         }
 
-        return result;
+        return key.compute();
     }
 
     /**
-     * Check if the cache needs to be updated.
+     * Compute the key of the lock file: a digest of the dependencies and their management, the parent POMs and the
+     * filters, without anything specific to the machine, so that the lock file can be shared.
      *
-     * @return true if the dependency refs were successfully loaded, false otherwise
+     * @return the key, as hexadecimal digits
+     */
+    private String computeLockKey( Pom pom )
+    {
+        ResolutionCacheKey key = new ResolutionCacheKey();
+
+        addDependencies( key, pom );
+
+        key.add( "useScope", useScope );
+        key.add( "scopes", scopes );
+        key.add( "type", type );
+
+        return key.compute();
+    }
+
+    /**
+     * The artifacts of a resolution result, which Maven 2 returns as a raw <code>Set</code>.
+     */
+    @SuppressWarnings( "unchecked" )
+    private static Set<Artifact> getArtifacts( ArtifactResolutionResult result )
+    {
+        return result.getArtifacts();
+    }
+
+    /**
+     * Add the dependencies, their management and the parent POMs to a key.
      */
-    private boolean checkCachedDependencies()
+    private void addDependencies( ResolutionCacheKey key, Pom pom )
     {
-        File cacheBuildFile = FileUtils.resolveFile( getProject().getBaseDir(), getDependencyRefsBuildFile() );
-        if ( ! cacheBuildFile.exists() )
+        for ( Dependency dependency : dependencies )
         {
-            return false;
+            key.add( "dependency", dependency.getGroupId() + ":" + dependency.getArtifactId() + ":"
+                + dependency.getVersion() + ":" + dependency.getType() + ":" + dependency.getClassifier() + ":"
+                + dependency.getScope() + ":" + dependency.isOptional() );
+            key.add( "systemPath", dependency.getSystemPath() );
+            for ( Iterator<?> i = dependency.getExclusions().iterator(); i.hasNext(); )
+            {
+                Exclusion exclusion = (Exclusion) i.next();
+                key.add( "exclusion", exclusion.getGroupId() + ":" + exclusion.getArtifactId() );
+            }
         }
 
-        File antBuildFile = new File( getProject().getProperty( "ant.file" ) );
-        if ( antBuildFile.lastModified() > cacheBuildFile.lastModified() )
+        Map<String, Artifact> managedVersions = new TreeMap<String, Artifact>();
+        Map<?, ?> managedVersionMap = pom.getMavenProject().getManagedVersionMap();
+        if ( managedVersionMap != null )
         {
-            return false;
+            for ( Map.Entry<?, ?> entry : managedVersionMap.entrySet() )
+            {
+                managedVersions.put( (String) entry.getKey(), (Artifact) entry.getValue() );
+            }
+        }
+        for ( Map.Entry<String, Artifact> entry : managedVersions.entrySet() )
+        {
+            Artifact managed = entry.getValue();
+            key.add( "managed", entry.getKey() + ":" + managed.getVersion() + ":" + managed.getScope() );
         }
 
-        Pom pom = getPom();
-        if ( pom != null )
+        try
         {
-            File pomFile = pom.getFile();
-            if ( pomFile != null && ( pomFile.lastModified() > cacheBuildFile.lastModified() ) )
+            for ( MavenProject parent = pom.getMavenProject().getParent(); parent != null;
+                parent = parent.getParent() )
             {
-                return false;
+                key.add( "parent", parent.getId() );
+                key.addFile( "parentFile", parent.getFile() );
             }
         }
+        catch ( IOException e )
+        {
+            throw new BuildException( "Unable to read parent POM: " + e.getMessage(), e );
+        }
+    }
 
-        return loadDependenciesFromAntBuildFile();
+    private static String toString( ArtifactRepositoryPolicy policy )
+    {
+        if ( policy == null )
+        {
+            return null;
+        }
+        return policy.isEnabled() + ":" + policy.getUpdatePolicy() + ":" + policy.getChecksumPolicy();
     }
 
     /**
-     * Load the dependency references from the generated ant build file.
+     * Get the cache file holding the dependency refs resolved for a cache key. Each cache key gets its own file, so
+     * that different dependencies tasks don't overwrite each other's cache.
      *
-     * @return True if the dependency refs were successfully loaded.
+     * @param cacheKey the cache key
+     * @return the file
      */
-    private boolean loadDependenciesFromAntBuildFile()
+    private File getDependencyRefsFile( String cacheKey )
     {
-        Project currentAntProject = getProject();
-
-        // Run the ant build with the dependency refs
-        AntTaskModified dependenciesAntBuild = new AntTaskModified();
-        dependenciesAntBuild.setAntfile( getDependencyRefsBuildFile() );
-        dependenciesAntBuild.setProject( currentAntProject );
-        dependenciesAntBuild.execute();
+        return FileUtils.resolveFile( getProject().getBaseDir(), DEFAULT_ANT_BUILD_DIR + '/' + cacheKey + ".refs" );
+    }
 
-        // Copy the properties and refs to the current project
-        Project cachedDepsProject = dependenciesAntBuild.getSavedNewProject();
-        AntUtil.copyProperties( cachedDepsProject, currentAntProject );
-        AntUtil.copyReferences( cachedDepsProject, currentAntProject );
+    /**
+     * Load the dependency refs from the cache file, if it was written for the same cache key.
+     *
+     * @return true if the dependency refs were successfully loaded, false otherwise
+     */
+    private boolean checkCachedDependencies( File cacheFile, String cacheKey )
+    {
+        if ( !cacheFile.exists() )
+        {
+            return false;
+        }
 
-        return true;
+        try
+        {
+            DependencyRefsReader reader = new DependencyRefsReader( getProject() )
+            {
+                protected boolean exists( File file )
+                {
+                    return LocalRepositoryIndex.exists( file );
+                }
+            };
+            if ( reader.load( cacheFile, cacheKey ) )
+            {
+                return true;
+            }
+            log( "Dependency refs file " + cacheFile + " is out of date", Project.MSG_VERBOSE );
+        }
+        catch ( IOException e )
+        {
+            log( "Unable to read dependency refs file " + cacheFile + ": " + e.getMessage(), Project.MSG_VERBOSE );
+        }
+        return false;
     }
 
     private FileSet createFileSet()
@@ -486,6 +1103,8 @@ public class DependenciesTask
 
         toFileSet.createInclude().setName( filename );
 
+        LocalRepositoryIndex.fileResolved( artifact.getFile() );
+
         getProject().setProperty( artifact.getDependencyConflictId(), artifact.getFile().getAbsolutePath() );
 
         FileSet artifactFileSet = new FileSet();
@@ -499,26 +1118,105 @@ public class DependenciesTask
         }
     }
 
-    private void resolveSource( ArtifactFactory artifactFactory, ArtifactResolver resolver,
-                                List<ArtifactRepository> remoteArtifactRepositories, ArtifactRepository localRepo,
-                                Artifact artifact, String classifier, FileSet sourcesFileSet )
+    /**
+     * Resolve an attachment with the given classifier for each artifact, on the executor if one is given.
+     *
+     * @return the resolved attachments, in the order of the artifacts: a future returns <code>null</code> if the
+     *         attachment is not available
+     */
+    private List<Future<Artifact>> resolveClassifier( final ArtifactFactory artifactFactory,
+                                                      final ArtifactResolver resolver,
+                                                      final List<ArtifactRepository> remoteArtifactRepositories,
+                                                      final ArtifactRepository localRepo,
+                                                      Collection<Artifact> artifacts, String classifier,
+                                                      ExecutorService executor,
+                                                      final NotFoundCache notFoundCache )
     {
-        Artifact sourceArtifact =
-            artifactFactory.createArtifactWithClassifier( artifact.getGroupId(), artifact.getArtifactId(),
-                                                          artifact.getVersion(), "java-source", classifier );
-        try
-        {
-            resolver.resolve( sourceArtifact, remoteArtifactRepositories, localRepo );
+        List<Future<Artifact>> futures = new ArrayList<Future<Artifact>>( artifacts.size() );
 
-            addArtifactToResult( localRepo, sourceArtifact, sourcesFileSet );
-        }
-        catch ( ArtifactResolutionException e )
+        for ( Artifact artifact : artifacts )
         {
-            throw new BuildException( "Unable to resolve artifact: " + e.getMessage(), e );
+            final Artifact sourceArtifact =
+                artifactFactory.createArtifactWithClassifier( artifact.getGroupId(), artifact.getArtifactId(),
+                                                              artifact.getVersion(), "java-source", classifier );
+
+            FutureTask<Artifact> task = new FutureTask<Artifact>( new Callable<Artifact>()
+            {
+                public Artifact call()
+                    throws ArtifactResolutionException
+                {
+                    List<ArtifactRepository> repositories = remoteArtifactRepositories;
+                    if ( notFoundCache != null )
+                    {
+                        repositories = notFoundCache.filter( sourceArtifact, remoteArtifactRepositories );
+                        if ( repositories.isEmpty()
+                            && !new File( localRepo.getBasedir(), localRepo.pathOf( sourceArtifact ) ).exists() )
+                        {
+                            // already searched everywhere: still not available
+                            return null;
+                        }
+                    }
+
+                    try
+                    {
+                        resolver.resolve( sourceArtifact, repositories, localRepo );
+
+                        return sourceArtifact;
+                    }
+                    catch ( ArtifactNotFoundException e )
+                    {
+                        // no source available: no problem, it's optional
+                        if ( notFoundCache != null )
+                        {
+                            notFoundCache.recordMissing( sourceArtifact, repositories );
+                        }
+                        return null;
+                    }
+                }
+            } );
+
+            if ( executor != null )
+            {
+                executor.execute( task );
+            }
+            else
+            {
+                task.run();
+            }
+            futures.add( task );
         }
-        catch ( ArtifactNotFoundException e )
+
+        return futures;
+    }
+
+    private void addClassifierToResult( ArtifactRepository localRepo, List<Future<Artifact>> futures,
+                                        FileSet sourcesFileSet )
+    {
+        for ( Future<Artifact> future : futures )
         {
-            // no source available: no problem, it's optional
+            Artifact sourceArtifact;
+            try
+            {
+                sourceArtifact = future.get();
+            }
+            catch ( InterruptedException e )
+            {
+                throw new BuildException( "Interrupted while resolving artifacts", e );
+            }
+            catch ( ExecutionException e )
+            {
+                Throwable cause = e.getCause();
+                if ( cause instanceof ArtifactResolutionException )
+                {
+                    throw new BuildException( "Unable to resolve artifact: " + cause.getMessage(), cause );
+                }
+                throw new BuildException( "Unable to resolve artifact: " + cause, cause );
+            }
+
+            if ( sourceArtifact != null )
+            {
+                addArtifactToResult( localRepo, sourceArtifact, sourcesFileSet );
+            }
         }
     }
 
@@ -653,4 +1351,88 @@ public class DependenciesTask
     {
         this.cacheDependencyRefs = cacheDependencyRefs;
     }
+
+    public int getNotFoundCacheTtl()
+    {
+        return notFoundCacheTtl;
+    }
+
+    /**
+     * Remember for the given number of minutes that an artifact was not found in a remote repository.
+     *
+     * @param notFoundCacheTtl the number of minutes, or 0 to disable the cache
+     */
+    public void setNotFoundCacheTtl( int notFoundCacheTtl )
+    {
+        this.notFoundCacheTtl = notFoundCacheTtl;
+    }
+
+    public File getLockFile()
+    {
+        return lockFile;
+    }
+
+    public void setLockFile( File lockFile )
+    {
+        this.lockFile = lockFile;
+    }
+
+    public String getLockMode()
+    {
+        return lockMode;
+    }
+
+    public void setLockMode( String lockMode )
+    {
+        if ( !LOCK_MODE_WRITE.equals( lockMode ) && !LOCK_MODE_USE.equals( lockMode ) )
+        {
+            throw new BuildException( "lockMode must be \"" + LOCK_MODE_WRITE + "\" or \"" + LOCK_MODE_USE + "\": "
+                + lockMode );
+        }
+        this.lockMode = lockMode;
+    }
+
+    public File getProfileFile()
+    {
+        return profileFile;
+    }
+
+    public void setProfileFile( File profileFile )
+    {
+        this.profileFile = profileFile;
+    }
+
+    public int getProfileTop()
+    {
+        return profileTop;
+    }
+
+    public void setProfileTop( int profileTop )
+    {
+        if ( profileTop < 0 )
+        {
+            throw new BuildException( "profileTop must be a positive number of dependencies: " + profileTop );
+        }
+        this.profileTop = profileTop;
+    }
+
+    public int getParallel()
+    {
+        return parallel;
+    }
+
+    /**
+     * Download the POMs of the dependency graph and the sources and javadoc attachments with the given number
+     * of threads.
+     *
+     * @param parallel the number of threads, or 0 for a serial download
+     */
+    public void setParallel( int parallel )
+    {
+        if ( parallel < 0 )
+        {
+            throw new BuildException( "parallel must be a positive number of threads: " + parallel );
+        }
+        this.parallel = parallel;
+    }
 }
@@ -0,0 +1,293 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ant.util.AntBuildWriter;
+import org.apache.maven.artifact.ant.util.FileUtil;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Lock file of a dependency resolution: the resolved artifacts with their coordinates, scope, repository of origin
+ * and SHA-1, in resolution order. It holds no path of the local repository, except for system scope dependencies,
+ * so that it can be shared between machines and kept under version control.
+ * <p>
+ * The file starts with a header and the key of the resolution inputs, followed by one tab separated line per
+ * artifact and an end line with the number of artifacts, so that a truncated file is rejected. It is written to a
+ * temporary file, renamed once complete.
+ * </p>
+ *
+ * @since 2.1.4
+ */
+class DependencyLock
+{
+    static final String HEADER = "# maven-ant-tasks dependency lock 2";
+
+    private static final String HEADER_PREFIX = "# maven-ant-tasks dependency lock ";
+
+    private static final String KEY = "key";
+
+    private static final String END = "end";
+
+    private static final String ARTIFACT = "artifact";
+
+    private static final int FIELDS = 10;
+
+    private final String key;
+
+    private final List<Entry> entries;
+
+    private DependencyLock( String key, List<Entry> entries )
+    {
+        this.key = key;
+        this.entries = entries;
+    }
+
+    /**
+     * Get the key of the resolution inputs the lock was written for.
+     */
+    String getKey()
+    {
+        return key;
+    }
+
+    /**
+     * Get the locked artifacts, in resolution order.
+     */
+    List<Entry> getEntries()
+    {
+        return entries;
+    }
+
+    /**
+     * Write the lock of a resolution.
+     *
+     * @param file the lock file
+     * @param key the key of the resolution inputs
+     * @param artifacts the resolved artifacts, with their files
+     * @throws IOException if a file can't be read or the lock can't be written
+     */
+    static void write( File file, String key, Collection<Artifact> artifacts )
+        throws IOException
+    {
+        Checksums checksums = new Checksums( Collections.singletonList( "sha1" ) );
+
+        File temp = FileUtil.createTempFile( file );
+        Writer writer = null;
+        try
+        {
+            writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( temp ),
+                                                                 AntBuildWriter.DEFAULT_FILE_ENCODING ) );
+            writer.write( HEADER );
+            writer.write( '\n' );
+            writer.write( KEY + '\t' + key + '\n' );
+
+            for ( Artifact artifact : artifacts )
+            {
+                boolean system = Artifact.SCOPE_SYSTEM.equals( artifact.getScope() );
+                String[] fields =
+                    { ARTIFACT, artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(),
+                        artifact.getType(), artifact.getClassifier(), artifact.getScope(),
+                        artifact.getRepository() == null ? null : artifact.getRepository().getId(),
+                        checksums.read( artifact.getFile() ).get( "sha1" ),
+                        system ? artifact.getFile().getAbsolutePath() : null };
+                for ( int i = 0; i < fields.length; i++ )
+                {
+                    if ( i > 0 )
+                    {
+                        writer.write( '\t' );
+                    }
+                    writer.write( fields[i] == null ? "" : fields[i] );
+                }
+                writer.write( '\n' );
+            }
+            writer.write( END + '\t' + artifacts.size() + '\n' );
+
+            writer.close();
+            writer = null;
+            FileUtil.replace( temp, file );
+        }
+        finally
+        {
+            IOUtil.close( writer );
+            temp.delete();
+        }
+    }
+
+    /**
+     * Read a lock file.
+     *
+     * @param file the lock file
+     * @return the lock
+     * @throws IOException if the file can't be read or is not a lock file
+     */
+    static DependencyLock read( File file )
+        throws IOException
+    {
+        BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( file ),
+                                                                           AntBuildWriter.DEFAULT_FILE_ENCODING ) );
+        try
+        {
+            String header = reader.readLine();
+            if ( header != null && header.startsWith( HEADER_PREFIX ) && !HEADER.equals( header ) )
+            {
+                throw new IOException( "Unsupported version of dependency lock file " + file
+                    + ": write it again" );
+            }
+            if ( !HEADER.equals( header ) )
+            {
+                throw new IOException( "Not a dependency lock file: " + file );
+            }
+            String[] keyLine = split( reader.readLine() );
+            if ( keyLine.length != 2 || !KEY.equals( keyLine[0] ) )
+            {
+                throw new IOException( "Missing key in dependency lock file: " + file );
+            }
+
+            List<Entry> entries = new ArrayList<Entry>();
+            boolean ended = false;
+            String line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                if ( line.length() == 0 )
+                {
+                    continue;
+                }
+                String[] fields = split( line );
+                if ( !ended && fields.length == 2 && END.equals( fields[0] )
+                    && fields[1].equals( Integer.toString( entries.size() ) ) )
+                {
+                    ended = true;
+                }
+                else if ( ended || fields.length != FIELDS || !ARTIFACT.equals( fields[0] ) )
+                {
+                    throw new IOException( "Invalid line in dependency lock file " + file + ": " + line );
+                }
+                else
+                {
+                    entries.add( new Entry( fields ) );
+                }
+            }
+            if ( !ended )
+            {
+                throw new IOException( "Truncated dependency lock file: " + file );
+            }
+            return new DependencyLock( keyLine[1], entries );
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
+    private static String[] split( String line )
+    {
+        return line == null ? new String[0] : line.split( "\t", -1 );
+    }
+
+    /**
+     * A locked artifact.
+     */
+    static class Entry
+    {
+        private final String[] fields;
+
+        private Entry( String[] fields )
+        {
+            this.fields = fields;
+        }
+
+        String getGroupId()
+        {
+            return fields[1];
+        }
+
+        String getArtifactId()
+        {
+            return fields[2];
+        }
+
+        String getVersion()
+        {
+            return fields[3];
+        }
+
+        String getType()
+        {
+            return fields[4];
+        }
+
+        String getClassifier()
+        {
+            return get( 5 );
+        }
+
+        String getScope()
+        {
+            return get( 6 );
+        }
+
+        /**
+         * Get the id of the remote repository the artifact was downloaded from, or <code>null</code> if unknown.
+         */
+        String getRepositoryId()
+        {
+            return get( 7 );
+        }
+
+        String getSha1()
+        {
+            return fields[8];
+        }
+
+        /**
+         * Get the file of a system scope dependency, or <code>null</code> for an artifact of the local repository.
+         */
+        String getSystemPath()
+        {
+            return get( 9 );
+        }
+
+        private String get( int index )
+        {
+            return fields[index].length() == 0 ? null : fields[index];
+        }
+
+        public String toString()
+        {
+            return getGroupId() + ":" + getArtifactId() + ":" + getType()
+                + ( getClassifier() == null ? "" : ":" + getClassifier() ) + ":" + getVersion();
+        }
+    }
+}
@@ -19,17 +19,44 @@ package org.apache.maven.artifact.ant;
  * under the License.
  */
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
 import org.apache.maven.artifact.Artifact;
-import org.apache.maven.artifact.deployer.ArtifactDeployer;
+import org.apache.maven.artifact.ant.util.DaemonThreadFactory;
 import org.apache.maven.artifact.deployer.ArtifactDeploymentException;
+import org.apache.maven.artifact.manager.WagonConfigurationException;
+import org.apache.maven.artifact.manager.WagonManager;
 import org.apache.maven.artifact.metadata.ArtifactMetadata;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.artifact.repository.ArtifactRepositoryFactory;
 import org.apache.maven.artifact.repository.layout.ArtifactRepositoryLayout;
+import org.apache.maven.artifact.repository.metadata.RepositoryMetadataDeploymentException;
+import org.apache.maven.artifact.repository.metadata.RepositoryMetadataManager;
+import org.apache.maven.artifact.transform.ArtifactTransformationManager;
 import org.apache.maven.model.DistributionManagement;
 import org.apache.maven.project.artifact.ProjectArtifactMetadata;
+import org.apache.maven.wagon.ConnectionException;
+import org.apache.maven.wagon.ResourceDoesNotExistException;
+import org.apache.maven.wagon.TransferFailedException;
+import org.apache.maven.wagon.UnsupportedProtocolException;
+import org.apache.maven.wagon.Wagon;
+import org.apache.maven.wagon.authentication.AuthenticationException;
+import org.apache.maven.wagon.authorization.AuthorizationException;
+import org.apache.maven.wagon.proxy.ProxyInfo;
+import org.apache.maven.wagon.proxy.ProxyInfoProvider;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
+import org.codehaus.plexus.component.repository.exception.ComponentLifecycleException;
+import org.codehaus.plexus.util.FileUtils;
 
 /**
  * Deploy task, using maven-artifact.
@@ -46,6 +73,11 @@ public class DeployTask
 
     private boolean uniqueVersion = true;
 
+    /**
+     * The number of threads used to upload the artifact and the attached artifacts, or 0 to upload them serially.
+     */
+    private int parallel;
+
     /**
      * Create a core-Maven deployment ArtifactRepository from a Maven Ant Tasks's RemoteRepository definition.
      * @param repository the remote repository as defined in Ant
@@ -116,19 +148,14 @@ public class DeployTask
         ArtifactRepository deploymentRepository = getDeploymentRepository( pom, artifact );
 
         log( "Deploying to " + deploymentRepository.getUrl(), Project.MSG_INFO );
-        ArtifactDeployer deployer = (ArtifactDeployer) lookup( ArtifactDeployer.ROLE );
         try
         {
+            List<Artifact> artifacts = new ArrayList<Artifact>();
+            List<File> sources = new ArrayList<File>();
             if ( file != null )
             {
-                if ( !isPomArtifact )
-                {
-                    deployer.deploy( file, artifact, deploymentRepository, localRepo );
-                }
-                else
-                {
-                    deployer.deploy( pom.getFile(), artifact, deploymentRepository, localRepo );
-                }
+                artifacts.add( artifact );
+                sources.add( isPomArtifact ? pom.getFile() : file );
             }
 
             // Deploy any attached artifacts
@@ -136,9 +163,12 @@ public class DeployTask
             {
                 for ( Artifact attachedArtifact : pom.getAttachedArtifacts() )
                 {
-                    deployer.deploy( attachedArtifact.getFile(), attachedArtifact, deploymentRepository, localRepo );
+                    artifacts.add( attachedArtifact );
+                    sources.add( attachedArtifact.getFile() );
                 }
             }
+
+            deploy( artifacts, sources, deploymentRepository, localRepo );
         }
         catch ( ArtifactDeploymentException e )
         {
@@ -147,6 +177,292 @@ public class DeployTask
         }
     }
 
+    /**
+     * Deploy artifacts like the artifact deployer does, but as a single transaction: all the files are uploaded
+     * first, then the repository metadata is updated once. The attached artifacts, which share the version and the
+     * metadata of the main artifact, are not transformed, which saves a download of the snapshot metadata for each
+     * of them. With <code>parallel</code> threads, the files and their checksums are uploaded concurrently.
+     *
+     * @param artifacts the artifacts, the main artifact first
+     * @param sources the files of the artifacts
+     */
+    private void deploy( List<Artifact> artifacts, List<File> sources, final ArtifactRepository deploymentRepository,
+                         ArtifactRepository localRepo )
+        throws ArtifactDeploymentException
+    {
+        final WagonManager wagonManager = (WagonManager) lookup( WagonManager.ROLE );
+        ArtifactTransformationManager transformationManager =
+            (ArtifactTransformationManager) lookup( ArtifactTransformationManager.ROLE );
+        RepositoryMetadataManager repositoryMetadataManager =
+            (RepositoryMetadataManager) lookup( RepositoryMetadataManager.class.getName() );
+
+        if ( !wagonManager.isOnline() )
+        {
+            // deployment shouldn't silently fail when offline
+            throw new ArtifactDeploymentException( "System is offline. Cannot deploy artifact: " + artifacts.get( 0 )
+                + "." );
+        }
+
+        List<File> uploadSources = new ArrayList<File>( artifacts.size() );
+        for ( int i = 0; i < artifacts.size(); i++ )
+        {
+            Artifact artifact = artifacts.get( i );
+            File source = sources.get( i );
+            if ( !( artifact instanceof org.apache.maven.project.artifact.AttachedArtifact ) )
+            {
+                source = transformForDeployment( transformationManager, artifact, source, deploymentRepository,
+                                                 localRepo );
+            }
+            copyToLocalRepository( artifact, source, localRepo );
+            uploadSources.add( source );
+        }
+
+        ExecutorService executor = null;
+        if ( parallel > 0 && artifacts.size() > 1 )
+        {
+            log( "Uploading " + artifacts.size() + " artifacts with " + parallel + " threads", Project.MSG_VERBOSE );
+            executor = DaemonThreadFactory.newFixedThreadPool( "maven-ant-tasks-deployer", parallel );
+        }
+        try
+        {
+            List<Future<Object>> uploads = new ArrayList<Future<Object>>( artifacts.size() );
+            for ( int i = 0; i < artifacts.size(); i++ )
+            {
+                final File source = uploadSources.get( i );
+                final Artifact artifact = artifacts.get( i );
+                final Checksums checksums = createChecksums();
+                FutureTask<Object> upload = new FutureTask<Object>( new Callable<Object>()
+                {
+                    public Object call()
+                        throws TransferFailedException
+                    {
+                        if ( checksums == null )
+                        {
+                            wagonManager.putArtifact( source, artifact, deploymentRepository );
+                        }
+                        else
+                        {
+                            putArtifact( wagonManager, source, artifact, deploymentRepository, checksums );
+                        }
+                        return null;
+                    }
+                } );
+
+                if ( executor != null )
+                {
+                    executor.execute( upload );
+                }
+                else
+                {
+                    upload.run();
+                }
+                uploads.add( upload );
+            }
+
+            // wait for all the uploads before reporting the first failure
+            Throwable failure = null;
+            for ( Future<Object> upload : uploads )
+            {
+                try
+                {
+                    upload.get();
+                }
+                catch ( ExecutionException e )
+                {
+                    if ( failure == null )
+                    {
+                        failure = e.getCause();
+                    }
+                }
+                catch ( InterruptedException e )
+                {
+                    throw new BuildException( "Interrupted while deploying artifacts", e );
+                }
+            }
+            if ( failure != null )
+            {
+                throw new ArtifactDeploymentException( "Error deploying artifact: " + failure.getMessage(), failure );
+            }
+        }
+        finally
+        {
+            if ( executor != null )
+            {
+                executor.shutdownNow();
+            }
+        }
+
+        // must be after the artifacts are deployed
+        try
+        {
+            for ( Artifact artifact : artifacts )
+            {
+                for ( Object metadata : artifact.getMetadataList() )
+                {
+                    repositoryMetadataManager.deploy( (ArtifactMetadata) metadata, localRepo, deploymentRepository );
+                }
+            }
+        }
+        catch ( RepositoryMetadataDeploymentException e )
+        {
+            throw new ArtifactDeploymentException( "Error installing artifact's metadata: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Upload an artifact like the wagon manager does, but with the configured checksums, computed from the bytes
+     * read for the upload.
+     */
+    private void putArtifact( final WagonManager wagonManager, File source, Artifact artifact,
+                              ArtifactRepository deploymentRepository, Checksums checksums )
+        throws TransferFailedException
+    {
+        org.apache.maven.wagon.repository.Repository repository =
+            new org.apache.maven.wagon.repository.Repository( deploymentRepository.getId(),
+                                                              deploymentRepository.getUrl() );
+        String remotePath = deploymentRepository.pathOf( artifact );
+
+        Wagon wagon;
+        try
+        {
+            wagon = wagonManager.getWagon( repository );
+        }
+        catch ( UnsupportedProtocolException e )
+        {
+            throw new TransferFailedException( "Unsupported Protocol: '" + repository.getProtocol() + "': "
+                + e.getMessage(), e );
+        }
+        catch ( WagonConfigurationException e )
+        {
+            throw new TransferFailedException( "Unable to configure Wagon: '" + repository.getProtocol() + "': "
+                + e.getMessage(), e );
+        }
+
+        AntDownloadMonitor downloadMonitor = new AntDownloadMonitor();
+        downloadMonitor.setProject( getProject() );
+        Checksums.Observer checksumObserver = checksums.new Observer();
+        wagon.addTransferListener( downloadMonitor );
+        wagon.addTransferListener( checksumObserver );
+        try
+        {
+            wagon.connect( repository, wagonManager.getAuthenticationInfo( repository.getId() ),
+                           new ProxyInfoProvider()
+                           {
+                               public ProxyInfo getProxyInfo( String protocol )
+                               {
+                                   return wagonManager.getProxy( protocol );
+                               }
+                           } );
+            try
+            {
+                wagon.put( source, remotePath );
+
+                wagon.removeTransferListener( downloadMonitor );
+                wagon.removeTransferListener( checksumObserver );
+
+                Map<String, String> sums = checksumObserver.getChecksums();
+                if ( sums == null )
+                {
+                    throw new TransferFailedException( "No checksum computed while uploading " + source );
+                }
+                for ( Map.Entry<String, String> checksum : sums.entrySet() )
+                {
+                    File temp = File.createTempFile( "maven-artifact", null );
+                    temp.deleteOnExit();
+                    FileUtils.fileWrite( temp.getAbsolutePath(), "UTF-8", checksum.getValue() );
+
+                    wagon.put( temp, remotePath + "." + checksum.getKey() );
+                    temp.delete();
+                }
+            }
+            finally
+            {
+                wagon.disconnect();
+            }
+        }
+        catch ( ConnectionException e )
+        {
+            throw new TransferFailedException( "Connection failed: " + e.getMessage(), e );
+        }
+        catch ( AuthenticationException e )
+        {
+            throw new TransferFailedException( "Authentication failed: " + e.getMessage(), e );
+        }
+        catch ( AuthorizationException e )
+        {
+            throw new TransferFailedException( "Authorization failed: " + e.getMessage(), e );
+        }
+        catch ( ResourceDoesNotExistException e )
+        {
+            throw new TransferFailedException( "Resource to deploy not found: " + e.getMessage(), e );
+        }
+        catch ( IOException e )
+        {
+            throw new TransferFailedException( "Error creating temporary file for deployment: " + e.getMessage(), e );
+        }
+        finally
+        {
+            try
+            {
+                getContainer().release( wagon );
+            }
+            catch ( ComponentLifecycleException e )
+            {
+                log( "Problem releasing wagon - ignoring: " + e.getMessage(), Project.MSG_DEBUG );
+            }
+        }
+    }
+
+    /**
+     * Transform an artifact for deployment.
+     *
+     * @return the file to upload
+     */
+    private File transformForDeployment( ArtifactTransformationManager transformationManager, Artifact artifact,
+                                         File source, ArtifactRepository deploymentRepository,
+                                         ArtifactRepository localRepo )
+        throws ArtifactDeploymentException
+    {
+        // a POM source file is transformed through the artifact file
+        boolean useArtifactFile = false;
+        File oldArtifactFile = artifact.getFile();
+        if ( "pom".equals( artifact.getType() ) )
+        {
+            artifact.setFile( source );
+            useArtifactFile = true;
+        }
+
+        transformationManager.transformForDeployment( artifact, deploymentRepository, localRepo );
+
+        if ( useArtifactFile )
+        {
+            source = artifact.getFile();
+            artifact.setFile( oldArtifactFile );
+        }
+        return source;
+    }
+
+    /**
+     * Copy the deployed file to the local repository, like the artifact deployer does.
+     */
+    private void copyToLocalRepository( Artifact artifact, File source, ArtifactRepository localRepo )
+        throws ArtifactDeploymentException
+    {
+        File artifactFile = new File( localRepo.getBasedir(), localRepo.pathOf( artifact ) );
+        if ( !artifactFile.equals( source ) )
+        {
+            try
+            {
+                FileUtils.copyFile( source, artifactFile );
+                LocalRepositoryIndex.fileAdded( artifactFile );
+            }
+            catch ( IOException e )
+            {
+                throw new ArtifactDeploymentException( "Error deploying artifact: " + e.getMessage(), e );
+            }
+        }
+    }
+
     private ArtifactRepository getDeploymentRepository( Pom pom, Artifact artifact )
     {
         DistributionManagement distributionManagement = pom.getDistributionManagement();
@@ -215,4 +531,24 @@ public class DeployTask
     {
         return uniqueVersion;
     }
+
+    public int getParallel()
+    {
+        return parallel;
+    }
+
+    /**
+     * Upload the artifact and the attached artifacts with the given number of threads.
+     *
+     * @param parallel the number of threads, or 0 for a serial upload
+     * @since 2.1.4
+     */
+    public void setParallel( int parallel )
+    {
+        if ( parallel < 0 )
+        {
+            throw new BuildException( "parallel must be a positive number of threads: " + parallel );
+        }
+        this.parallel = parallel;
+    }
 }
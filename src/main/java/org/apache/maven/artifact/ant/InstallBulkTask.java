@@ -0,0 +1,569 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ant.util.DaemonThreadFactory;
+import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.installer.ArtifactInstallationException;
+import org.apache.maven.artifact.metadata.ArtifactMetadata;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.metadata.RepositoryMetadataManager;
+import org.apache.maven.artifact.transform.ArtifactTransformationManager;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.io.xpp3.MavenXpp3Writer;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.WriterFactory;
+
+/**
+ * Install many artifacts into the local repository at once, without building a POM for each of them. The artifacts
+ * are listed in a manifest of <code>groupId:artifactId:version[:type[:classifier]] = file</code> lines, or found in
+ * filesets: a file <code>artifactId-version[-classifier].type</code> gets its coordinates from the POM file
+ * <code>artifactId-version.pom</code> next to it, or from the <code>groupId</code> of the task and its name. A name
+ * is only mapped without POM if the version is the only part starting with a digit and has no hyphen other than a
+ * <code>-SNAPSHOT</code> suffix, since a classifier could not be told from the version. A minimal POM is generated for the artifacts that have none. The
+ * repository metadata is updated once for each groupId:artifactId.
+ *
+ * @since 2.1.4
+ */
+public class InstallBulkTask
+    extends AbstractArtifactTask
+{
+    /**
+     * The names <code>artifactId-version</code> mapped without POM. A hyphen followed by a digit starts the version,
+     * and a hyphen in the version could as well start a classifier, so only <code>-SNAPSHOT</code> is allowed.
+     */
+    private static final Pattern FILE_NAME =
+        Pattern.compile( "((?:[^-]|-(?!\\d))+)-(\\d[^-]*(?:-SNAPSHOT)?)" );
+
+    private File manifest;
+
+    private List<FileSet> fileSets = new ArrayList<FileSet>();
+
+    private String groupId;
+
+    private String checksums;
+
+    private boolean skipUnchanged;
+
+    /**
+     * The number of threads used to copy the files, or 0 to copy them serially.
+     */
+    private int parallel;
+
+    protected void doExecute()
+    {
+        if ( manifest == null && fileSets.isEmpty() )
+        {
+            throw new BuildException( "You must specify a manifest and/or a fileset of artifacts "
+                + "to install to the local repository." );
+        }
+
+        List<String> checksumExtensions = checksums == null ? null : Checksums.parse( checksums );
+
+        ArtifactRepository localRepo = createLocalArtifactRepository();
+        ArtifactFactory artifactFactory = (ArtifactFactory) lookup( ArtifactFactory.ROLE );
+
+        Map<Artifact, File> artifacts = new LinkedHashMap<Artifact, File>();
+        if ( manifest != null )
+        {
+            readManifest( artifactFactory, artifacts );
+        }
+        for ( FileSet fileSet : fileSets )
+        {
+            scanFileSet( artifactFactory, fileSet, artifacts );
+        }
+        addMissingPoms( artifactFactory, localRepo, artifacts );
+
+        ArtifactTransformationManager transformationManager =
+            (ArtifactTransformationManager) lookup( ArtifactTransformationManager.ROLE );
+        RepositoryMetadataManager repositoryMetadataManager =
+            (RepositoryMetadataManager) lookup( RepositoryMetadataManager.class.getName() );
+        LocalRepositoryInstaller installer =
+            new LocalRepositoryInstaller( this, transformationManager, repositoryMetadataManager, localRepo,
+                                          checksumExtensions, skipUnchanged );
+
+        Map<Artifact, Boolean> changes = installFiles( installer, artifacts );
+
+        // merge the metadata of all the versions of an artifact, to install it once
+        Map<Object, ArtifactMetadata> metadataByKey = new LinkedHashMap<Object, ArtifactMetadata>();
+        Set<Object> changedKeys = new HashSet<Object>();
+        for ( Map.Entry<Artifact, Boolean> change : changes.entrySet() )
+        {
+            for ( Object o : change.getKey().getMetadataList() )
+            {
+                ArtifactMetadata metadata = (ArtifactMetadata) o;
+                ArtifactMetadata merged = metadataByKey.get( metadata.getKey() );
+                if ( merged == null )
+                {
+                    metadataByKey.put( metadata.getKey(), metadata );
+                }
+                else
+                {
+                    merged.merge( metadata );
+                }
+                if ( change.getValue().booleanValue() )
+                {
+                    changedKeys.add( metadata.getKey() );
+                }
+            }
+        }
+        try
+        {
+            for ( Map.Entry<Object, ArtifactMetadata> metadata : metadataByKey.entrySet() )
+            {
+                List<ArtifactMetadata> list = new ArrayList<ArtifactMetadata>( 1 );
+                list.add( metadata.getValue() );
+                installer.installMetadata( list, changedKeys.contains( metadata.getKey() ) );
+            }
+        }
+        catch ( ArtifactInstallationException e )
+        {
+            throw new BuildException( "Error installing artifact metadata: " + e.getMessage(), e );
+        }
+
+        log( "Installed " + artifacts.size() + " files, " + ( artifacts.size() - countChanged( changes ) )
+            + " unchanged", Project.MSG_VERBOSE );
+    }
+
+    private static int countChanged( Map<Artifact, Boolean> changes )
+    {
+        int count = 0;
+        for ( Boolean changed : changes.values() )
+        {
+            if ( changed.booleanValue() )
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Install the files of the artifacts, with <code>parallel</code> threads.
+     *
+     * @return whether each artifact file was changed
+     */
+    private Map<Artifact, Boolean> installFiles( final LocalRepositoryInstaller installer,
+                                                 Map<Artifact, File> artifacts )
+    {
+        ExecutorService executor = null;
+        if ( parallel > 0 && artifacts.size() > 1 )
+        {
+            log( "Installing " + artifacts.size() + " files with " + parallel + " threads", Project.MSG_VERBOSE );
+            executor = DaemonThreadFactory.newFixedThreadPool( "maven-ant-tasks-installer", parallel );
+        }
+        try
+        {
+            Map<Artifact, Future<Boolean>> installs = new LinkedHashMap<Artifact, Future<Boolean>>();
+            for ( Map.Entry<Artifact, File> entry : artifacts.entrySet() )
+            {
+                final Artifact artifact = entry.getKey();
+                final File source = entry.getValue();
+                FutureTask<Boolean> install = new FutureTask<Boolean>( new Callable<Boolean>()
+                {
+                    public Boolean call()
+                        throws ArtifactInstallationException
+                    {
+                        return Boolean.valueOf( installer.installArtifactFile( source, artifact ) );
+                    }
+                } );
+
+                if ( executor != null )
+                {
+                    executor.execute( install );
+                }
+                else
+                {
+                    install.run();
+                }
+                installs.put( artifact, install );
+            }
+
+            // wait for all the copies before reporting the first failure
+            Map<Artifact, Boolean> changes = new LinkedHashMap<Artifact, Boolean>();
+            Throwable failure = null;
+            for ( Map.Entry<Artifact, Future<Boolean>> install : installs.entrySet() )
+            {
+                try
+                {
+                    changes.put( install.getKey(), install.getValue().get() );
+                }
+                catch ( ExecutionException e )
+                {
+                    if ( failure == null )
+                    {
+                        failure = e.getCause();
+                    }
+                }
+                catch ( InterruptedException e )
+                {
+                    throw new BuildException( "Interrupted while installing artifacts", e );
+                }
+            }
+            if ( failure != null )
+            {
+                throw new BuildException( "Error installing artifact: " + failure.getMessage(), failure );
+            }
+            return changes;
+        }
+        finally
+        {
+            if ( executor != null )
+            {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Read the artifacts listed in the manifest. The files are relative to the directory of the manifest.
+     */
+    private void readManifest( ArtifactFactory artifactFactory, Map<Artifact, File> artifacts )
+    {
+        BufferedReader reader = null;
+        try
+        {
+            reader = new BufferedReader( new InputStreamReader( new FileInputStream( manifest ), "UTF-8" ) );
+            String line;
+            int lineNumber = 0;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                lineNumber++;
+                line = line.trim();
+                if ( line.length() == 0 || line.startsWith( "#" ) )
+                {
+                    continue;
+                }
+
+                int index = line.indexOf( '=' );
+                String[] coordinates = index < 0 ? null : line.substring( 0, index ).trim().split( ":" );
+                if ( coordinates == null || coordinates.length < 3 || coordinates.length > 5 )
+                {
+                    throw new BuildException( "Invalid line " + lineNumber + " in " + manifest
+                        + ", expected groupId:artifactId:version[:type[:classifier]] = file: " + line );
+                }
+
+                File file = new File( line.substring( index + 1 ).trim() );
+                if ( !file.isAbsolute() )
+                {
+                    file = new File( manifest.getParentFile(), file.getPath() );
+                }
+                if ( !file.isFile() )
+                {
+                    throw new BuildException( "File " + file + " not found, at line " + lineNumber + " in "
+                        + manifest );
+                }
+
+                String type = coordinates.length > 3 ? coordinates[3] : "jar";
+                String classifier = coordinates.length > 4 ? coordinates[4] : null;
+                artifacts.put( artifactFactory.createArtifactWithClassifier( coordinates[0], coordinates[1],
+                                                                             coordinates[2], type, classifier ),
+                               file );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new BuildException( "Unable to read manifest " + manifest + ": " + e.getMessage(), e );
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
+    /**
+     * Find the artifacts of a fileset. A POM file next to an artifact file is the POM of the artifact, or of the
+     * artifact it is attached to when its name adds a classifier to the name of the POM. A POM file alone is an
+     * artifact of type <code>pom</code>.
+     */
+    private void scanFileSet( ArtifactFactory artifactFactory, FileSet fileSet, Map<Artifact, File> artifacts )
+    {
+        DirectoryScanner scanner = fileSet.getDirectoryScanner( getProject() );
+        File basedir = scanner.getBasedir();
+
+        Set<File> poms = new HashSet<File>();
+        Set<File> allPoms = new HashSet<File>();
+        List<File> files = new ArrayList<File>();
+        for ( String name : scanner.getIncludedFiles() )
+        {
+            File file = new File( basedir, name );
+            if ( name.endsWith( ".pom" ) )
+            {
+                poms.add( file );
+                allPoms.add( file );
+            }
+            else
+            {
+                files.add( file );
+            }
+        }
+
+        for ( File file : files )
+        {
+            String name = file.getName();
+            int index = name.lastIndexOf( '.' );
+            String baseName = index < 0 ? name : name.substring( 0, index );
+            String type = index < 0 ? "jar" : name.substring( index + 1 );
+
+            File pomFile = new File( file.getParentFile(), baseName + ".pom" );
+            if ( pomFile.isFile() )
+            {
+                Model model = readPom( pomFile );
+                artifacts.put( artifactFactory.createArtifactWithClassifier( Pom.getGroupId( model ),
+                                                                             model.getArtifactId(),
+                                                                             Pom.getVersion( model ), type, null ),
+                               file );
+                artifacts.put( artifactFactory.createProjectArtifact( Pom.getGroupId( model ), model.getArtifactId(),
+                                                                      Pom.getVersion( model ) ), pomFile );
+                poms.remove( pomFile );
+                continue;
+            }
+
+            File attachedTo = findAttachedPom( file, baseName, allPoms );
+            if ( attachedTo != null )
+            {
+                String pomName = attachedTo.getName();
+                String classifier = baseName.substring( pomName.length() - ".pom".length() + 1 );
+                Model model = readPom( attachedTo );
+                artifacts.put( artifactFactory.createArtifactWithClassifier( Pom.getGroupId( model ),
+                                                                             model.getArtifactId(),
+                                                                             Pom.getVersion( model ), type,
+                                                                             classifier ), file );
+                continue;
+            }
+
+            Matcher matcher = FILE_NAME.matcher( baseName );
+            if ( groupId == null || !matcher.matches() )
+            {
+                throw new BuildException( "Unable to find the coordinates of " + file + ": it must have a POM file "
+                    + "named " + pomFile.getName() + " or artifactId-version.pom for a classifier, or be named "
+                    + "artifactId-version." + type + " with the groupId attribute set and no hyphen in the version "
+                    + "but -SNAPSHOT; list it in the manifest otherwise" );
+            }
+            artifacts.put( artifactFactory.createArtifactWithClassifier( groupId, matcher.group( 1 ),
+                                                                         matcher.group( 2 ), type, null ), file );
+        }
+
+        for ( File pomFile : poms )
+        {
+            Model model = readPom( pomFile );
+            artifacts.put( artifactFactory.createProjectArtifact( Pom.getGroupId( model ), model.getArtifactId(),
+                                                                  Pom.getVersion( model ) ), pomFile );
+        }
+    }
+
+    /**
+     * Find the POM of the artifact a file is attached to, named like the file without its classifier. The longest
+     * name wins, for a classifier with a hyphen.
+     *
+     * @return the POM file, or <code>null</code> if there is none
+     */
+    private static File findAttachedPom( File file, String baseName, Set<File> poms )
+    {
+        File found = null;
+        for ( File pomFile : poms )
+        {
+            String prefix = pomFile.getName().substring( 0, pomFile.getName().length() - ".pom".length() ) + "-";
+            if ( pomFile.getParentFile().equals( file.getParentFile() ) && baseName.startsWith( prefix )
+                && baseName.length() > prefix.length()
+                && ( found == null || pomFile.getName().length() > found.getName().length() ) )
+            {
+                found = pomFile;
+            }
+        }
+        return found;
+    }
+
+    private static Model readPom( File pomFile )
+    {
+        Model model = Pom.readModel( pomFile );
+        if ( model == null )
+        {
+            throw new BuildException( "Unable to read the coordinates of POM " + pomFile );
+        }
+        return model;
+    }
+
+    /**
+     * Generate a minimal POM for the artifacts without a POM, in the list or in the local repository.
+     */
+    private void addMissingPoms( ArtifactFactory artifactFactory, ArtifactRepository localRepo,
+                                 Map<Artifact, File> artifacts )
+    {
+        Set<String> withPom = new HashSet<String>();
+        Map<String, Artifact> withoutPom = new LinkedHashMap<String, Artifact>();
+        for ( Artifact artifact : artifacts.keySet() )
+        {
+            String key = artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion();
+            if ( "pom".equals( artifact.getType() ) && artifact.getClassifier() == null )
+            {
+                withPom.add( key );
+            }
+            else if ( !withoutPom.containsKey( key ) || artifact.getClassifier() == null )
+            {
+                // the packaging is the type of the main artifact
+                withoutPom.put( key, artifact );
+            }
+        }
+
+        for ( Map.Entry<String, Artifact> entry : withoutPom.entrySet() )
+        {
+            Artifact artifact = entry.getValue();
+            Artifact pomArtifact =
+                artifactFactory.createProjectArtifact( artifact.getGroupId(), artifact.getArtifactId(),
+                                                       artifact.getVersion() );
+            if ( withPom.contains( entry.getKey() )
+                || new File( localRepo.getBasedir(), localRepo.pathOf( pomArtifact ) ).exists() )
+            {
+                continue;
+            }
+
+            log( "Generating a POM for " + entry.getKey(), Project.MSG_VERBOSE );
+            Model model = new Model();
+            model.setModelVersion( "4.0.0" );
+            model.setGroupId( artifact.getGroupId() );
+            model.setArtifactId( artifact.getArtifactId() );
+            model.setVersion( artifact.getVersion() );
+            model.setPackaging( artifact.getClassifier() == null ? artifact.getType() : "jar" );
+
+            artifacts.put( pomArtifact, writePom( model ) );
+        }
+    }
+
+    private File writePom( Model model )
+    {
+        Writer writer = null;
+        try
+        {
+            File pomFile = File.createTempFile( "maven-ant-tasks-" + model.getArtifactId(), ".pom" );
+            pomFile.deleteOnExit();
+            writer = WriterFactory.newXmlWriter( pomFile );
+            new MavenXpp3Writer().write( writer, model );
+            return pomFile;
+        }
+        catch ( IOException e )
+        {
+            throw new BuildException( "Unable to write the POM of " + model.getArtifactId() + ": " + e.getMessage(),
+                                      e );
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+    }
+
+    public File getManifest()
+    {
+        return manifest;
+    }
+
+    /**
+     * @param manifest a file of <code>groupId:artifactId:version[:type[:classifier]] = file</code> lines
+     */
+    public void setManifest( File manifest )
+    {
+        this.manifest = manifest;
+    }
+
+    public void addFileset( FileSet fileSet )
+    {
+        fileSets.add( fileSet );
+    }
+
+    public String getGroupId()
+    {
+        return groupId;
+    }
+
+    /**
+     * @param groupId the groupId of the files of the filesets without a POM
+     */
+    public void setGroupId( String groupId )
+    {
+        this.groupId = groupId;
+    }
+
+    public String getChecksums()
+    {
+        return checksums;
+    }
+
+    /**
+     * @param checksums comma separated list of <code>md5</code>, <code>sha1</code>, <code>sha256</code> and
+     *            <code>sha512</code>
+     */
+    public void setChecksums( String checksums )
+    {
+        this.checksums = checksums;
+    }
+
+    public boolean isSkipUnchanged()
+    {
+        return skipUnchanged;
+    }
+
+    public void setSkipUnchanged( boolean skipUnchanged )
+    {
+        this.skipUnchanged = skipUnchanged;
+    }
+
+    public int getParallel()
+    {
+        return parallel;
+    }
+
+    /**
+     * Copy the files with the given number of threads.
+     *
+     * @param parallel the number of threads, or 0 for a serial copy
+     */
+    public void setParallel( int parallel )
+    {
+        if ( parallel < 0 )
+        {
+            throw new BuildException( "parallel must be a positive number of threads: " + parallel );
+        }
+        this.parallel = parallel;
+    }
+}
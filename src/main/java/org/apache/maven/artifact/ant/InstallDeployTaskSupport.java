@@ -44,6 +44,12 @@ public abstract class InstallDeployTaskSupport
      */
     protected List<AttachedArtifact> attachedArtifacts = new ArrayList<AttachedArtifact>();
 
+    /**
+     * Comma separated list of the checksum files to write with each artifact, computed in the same pass as the copy
+     * or the upload of the artifact.
+     */
+    private String checksums;
+
     public File getFile()
     {
         return file;
@@ -54,6 +60,43 @@ public abstract class InstallDeployTaskSupport
         this.file = file;
     }
 
+    public String getChecksums()
+    {
+        return checksums;
+    }
+
+    /**
+     * Write checksum files with each installed or deployed artifact.
+     *
+     * @param checksums comma separated list of <code>md5</code>, <code>sha1</code>, <code>sha256</code> and
+     *            <code>sha512</code>
+     * @since 2.1.4
+     */
+    public void setChecksums( String checksums )
+    {
+        this.checksums = checksums;
+    }
+
+    /**
+     * Get the extensions of the checksum files configured for the task.
+     *
+     * @return the extensions, or <code>null</code> if the <code>checksums</code> attribute is not set
+     */
+    List<String> getChecksumExtensions()
+    {
+        return checksums == null ? null : Checksums.parse( checksums );
+    }
+
+    /**
+     * Create the checksums configured for the task.
+     *
+     * @return the checksums, or <code>null</code> if the <code>checksums</code> attribute is not set
+     */
+    Checksums createChecksums()
+    {
+        return checksums == null ? null : new Checksums( getChecksumExtensions() );
+    }
+
     public Pom initializePom( ArtifactRepository localArtifactRepository )
     {
         Pom pom = super.initializePom( localArtifactRepository );
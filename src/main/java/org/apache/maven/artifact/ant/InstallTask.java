@@ -21,9 +21,10 @@ package org.apache.maven.artifact.ant;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.installer.ArtifactInstallationException;
-import org.apache.maven.artifact.installer.ArtifactInstaller;
 import org.apache.maven.artifact.metadata.ArtifactMetadata;
 import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.metadata.RepositoryMetadataManager;
+import org.apache.maven.artifact.transform.ArtifactTransformationManager;
 import org.apache.maven.project.artifact.ProjectArtifactMetadata;
 import org.apache.tools.ant.BuildException;
 
@@ -37,6 +38,11 @@ import org.apache.tools.ant.BuildException;
 public class InstallTask
     extends InstallDeployTaskSupport
 {
+    /**
+     * Whether to leave alone the files and the metadata of the artifacts already installed with the same content.
+     */
+    private boolean skipUnchanged;
+
     protected void doExecute()
     {
         if ( file == null && ( attachedArtifacts.size() == 0 ) )
@@ -63,18 +69,24 @@ public class InstallTask
             artifact.addMetadata( metadata );
         }
 
-        ArtifactInstaller installer = (ArtifactInstaller) lookup( ArtifactInstaller.ROLE );
+        ArtifactTransformationManager transformationManager =
+            (ArtifactTransformationManager) lookup( ArtifactTransformationManager.ROLE );
+        RepositoryMetadataManager repositoryMetadataManager =
+            (RepositoryMetadataManager) lookup( RepositoryMetadataManager.class.getName() );
+        LocalRepositoryInstaller installer =
+            new LocalRepositoryInstaller( this, transformationManager, repositoryMetadataManager, localRepo,
+                                          getChecksumExtensions(), skipUnchanged );
         try
         {
             if ( file != null )
             {
                 if ( !isPomArtifact )
                 {
-                    installer.install( file, artifact, localRepo );
+                    installer.install( file, artifact );
                 }
                 else
                 {
-                    installer.install( pom.getFile(), artifact, localRepo );
+                    installer.install( pom.getFile(), artifact );
                 }
             }
 
@@ -83,7 +95,7 @@ public class InstallTask
             {
                 for ( Artifact attachedArtifact : pom.getAttachedArtifacts() )
                 {
-                    installer.install( attachedArtifact.getFile(), attachedArtifact, localRepo );
+                    installer.install( attachedArtifact.getFile(), attachedArtifact );
                 }
             }
         }
@@ -93,4 +105,20 @@ public class InstallTask
                 "Error installing artifact '" + artifact.getDependencyConflictId() + "': " + e.getMessage(), e );
         }
     }
+
+    public boolean isSkipUnchanged()
+    {
+        return skipUnchanged;
+    }
+
+    /**
+     * Leave alone the files of the artifacts already installed with the same content, and the metadata of these
+     * artifacts, so that their modification times are kept.
+     *
+     * @since 2.1.4
+     */
+    public void setSkipUnchanged( boolean skipUnchanged )
+    {
+        this.skipUnchanged = skipUnchanged;
+    }
 }
@@ -35,6 +35,8 @@ import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
 import org.codehaus.plexus.PlexusContainerException;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -112,7 +114,8 @@ public class InstallWagonProviderTask
 
             result = resolver.resolveTransitively( Collections.singleton( providerArtifact ),
                                                    createDummyArtifact(), createLocalArtifactRepository(),
-                                                   remoteRepositories, metadataSource, null );
+                                                   remoteRepositories,
+                                                   new CachingMetadataSource( metadataSource, getProject() ), null );
         }
         catch ( ArtifactResolutionException e )
         {
@@ -126,12 +129,14 @@ public class InstallWagonProviderTask
 
         try
         {
+            List<File> jars = new ArrayList<File>();
             for ( Iterator<Artifact> i = result.getArtifacts().iterator(); i.hasNext(); )
             {
                 Artifact a = i.next();
 
-                getContainer().addJarResource( a.getFile() );
+                jars.add( a.getFile() );
             }
+            addJarResources( jars );
         }
         catch ( PlexusContainerException e )
         {
@@ -0,0 +1,37 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.tools.ant.taskdefs.AntlibDefinition;
+
+/**
+ * Run by the antlib when the tasks are defined, so that the project defining them joins the {@link BuildSession
+ * session} of the build, shared with the projects it creates even if it runs none of the tasks itself.
+ *
+ * @since 2.1.4
+ */
+public class JoinSessionTask
+    extends AntlibDefinition
+{
+    public void execute()
+    {
+        BuildSession.join( getProject() );
+    }
+}
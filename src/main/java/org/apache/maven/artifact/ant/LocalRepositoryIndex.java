@@ -0,0 +1,567 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.tools.ant.Project;
+
+/**
+ * Memory-mapped index of the files of a local repository, answering presence queries without touching the file
+ * system. The index is a hash table of 64-bit hashes of the paths relative to the repository, with a Bloom filter in
+ * front of it for the files that are missing. It is built once by scanning the repository, then updated with the
+ * files installed and resolved by the tasks, and kept in the repository for the next builds.
+ * <p>
+ * The tasks own the index: a file it holds is reported present, and a file it doesn't hold is reported missing,
+ * without checking. A file added to the repository by another tool is only seen once resolved by a task, so a
+ * missing answer must only make the caller do more work, like resolving the file again: callers skipping work for a
+ * missing file check the file system. A file removed by another tool is only seen once a task fails to read it and
+ * removes it from the index with {@link #fileRemoved(File)}; until then, a cached path may still list it. Deleting the
+ * index file makes the next build scan the repository again. An index file locked by another build is not used.
+ * </p>
+ *
+ * @since 2.1.4
+ */
+class LocalRepositoryIndex
+{
+    /**
+     * The property enabling the index of the local repository.
+     */
+    static final String PROPERTY = "maven.ant.tasks.localRepositoryIndex";
+
+    /**
+     * The location of the index file, relative to the local repository.
+     */
+    static final String INDEX_FILE = NotFoundCache.CACHE_DIR + "/local-repository.index";
+
+    private static final int MAGIC = 0x4d414e54;
+
+    private static final int FORMAT = 1;
+
+    /**
+     * Magic, format, capacity and size.
+     */
+    private static final int HEADER_SIZE = 16;
+
+    private static final int MIN_CAPACITY = 1 << 12;
+
+    /**
+     * The number of bits set in the Bloom filter for each file. With 8 bits for each slot of the table, and a table
+     * at most half full, less than 1% of the lookups of missing files go past the filter.
+     */
+    private static final int BLOOM_HASHES = 4;
+
+    /**
+     * The open indexes, by local repository directory.
+     */
+    private static final Map<File, LocalRepositoryIndex> INDEXES = new HashMap<File, LocalRepositoryIndex>();
+
+    private final File basedir;
+
+    private final String prefix;
+
+    private final RandomAccessFile file;
+
+    private MappedByteBuffer buffer;
+
+    private int capacity;
+
+    private int size;
+
+    private LocalRepositoryIndex( File basedir, RandomAccessFile file )
+    {
+        this.basedir = basedir;
+        this.prefix = basedir.getAbsolutePath() + File.separator;
+        this.file = file;
+    }
+
+    /**
+     * Open the index of a local repository if the project enables it with the
+     * <code>maven.ant.tasks.localRepositoryIndex</code> property. Once open, the index is used by all the tasks of the
+     * build working with this repository.
+     *
+     * @param project the Ant project
+     * @param localRepository the local repository
+     */
+    static void open( Project project, ArtifactRepository localRepository )
+    {
+        if ( !Project.toBoolean( project.getProperty( PROPERTY ) ) )
+        {
+            return;
+        }
+
+        File basedir = new File( localRepository.getBasedir() ).getAbsoluteFile();
+        synchronized ( INDEXES )
+        {
+            if ( INDEXES.containsKey( basedir ) )
+            {
+                return;
+            }
+
+            LocalRepositoryIndex index = null;
+            try
+            {
+                index = load( project, basedir );
+            }
+            catch ( IOException e )
+            {
+                project.log( "Unable to open the index of the local repository " + basedir + ": " + e.getMessage(),
+                             Project.MSG_WARN );
+            }
+            // remember the failures too, so that they are not tried again
+            INDEXES.put( basedir, index );
+        }
+    }
+
+    private static LocalRepositoryIndex load( Project project, File basedir )
+        throws IOException
+    {
+        File indexFile = new File( basedir, INDEX_FILE );
+        indexFile.getParentFile().mkdirs();
+        RandomAccessFile file = new RandomAccessFile( indexFile, "rw" );
+        FileLock lock = null;
+        try
+        {
+            lock = file.getChannel().tryLock();
+        }
+        catch ( OverlappingFileLockException e )
+        {
+            // already used in this JVM, by tasks loaded by another class loader
+        }
+        finally
+        {
+            if ( lock == null )
+            {
+                file.close();
+            }
+        }
+        if ( lock == null )
+        {
+            project.log( "The index of the local repository " + basedir + " is used by another build",
+                         Project.MSG_VERBOSE );
+            return null;
+        }
+
+        // the lock is held until the JVM exits
+        LocalRepositoryIndex index = new LocalRepositoryIndex( basedir, file );
+        if ( !index.map() )
+        {
+            project.log( "Building the index of the local repository " + basedir, Project.MSG_VERBOSE );
+            index.resize( MIN_CAPACITY );
+            index.scan( basedir, "" );
+            project.log( "Indexed " + index.size + " files", Project.MSG_VERBOSE );
+        }
+        return index;
+    }
+
+    /**
+     * Get the open index of a local repository.
+     *
+     * @return the index, or <code>null</code> if the repository has no open index
+     */
+    private static LocalRepositoryIndex getInstance( String basedir )
+    {
+        synchronized ( INDEXES )
+        {
+            return INDEXES.isEmpty() ? null : INDEXES.get( new File( basedir ).getAbsoluteFile() );
+        }
+    }
+
+    /**
+     * Check if a file exists in a local repository, with the index of the repository if it is open. The answer of
+     * the index is not checked on the file system.
+     *
+     * @param localRepository the local repository
+     * @param path the path of the file, relative to the repository
+     * @return whether the file exists
+     */
+    static boolean exists( ArtifactRepository localRepository, String path )
+    {
+        LocalRepositoryIndex index = getInstance( localRepository.getBasedir() );
+        if ( index != null )
+        {
+            return index.contains( path.replace( File.separatorChar, '/' ) );
+        }
+        return new File( localRepository.getBasedir(), path ).exists();
+    }
+
+    /**
+     * Check if a file exists, with the index of its local repository if it is open. The answer of the index is not
+     * checked on the file system.
+     *
+     * @param file the file
+     * @return whether the file exists
+     */
+    static boolean exists( File file )
+    {
+        LocalRepositoryIndex index = findInstance( file );
+        if ( index != null )
+        {
+            return index.contains( index.getPath( file ) );
+        }
+        return file.exists();
+    }
+
+    /**
+     * Record a file added to a local repository, in the index of the repository if it is open. The file must be in
+     * its final place: not a temporary file still to be checked or renamed.
+     *
+     * @param file the file
+     */
+    static void fileAdded( File file )
+    {
+        LocalRepositoryIndex index = findInstance( file );
+        if ( index != null )
+        {
+            index.add( index.getPath( file ) );
+        }
+    }
+
+    /**
+     * Record a file resolved by a task in the index of its local repository, if the index is open and the file exists.
+     *
+     * @param file the file
+     */
+    static void fileResolved( File file )
+    {
+        LocalRepositoryIndex index = findInstance( file );
+        if ( index != null && file.isFile() )
+        {
+            index.add( index.getPath( file ) );
+        }
+    }
+
+    /**
+     * Record a file missing from a local repository, in the index of the repository if it is open: a file the index
+     * holds but that a task failed to read, because another tool removed it.
+     *
+     * @param file the file
+     */
+    static void fileRemoved( File file )
+    {
+        LocalRepositoryIndex index = findInstance( file );
+        if ( index != null )
+        {
+            index.remove( index.getPath( file ) );
+        }
+    }
+
+    private static LocalRepositoryIndex findInstance( File file )
+    {
+        synchronized ( INDEXES )
+        {
+            if ( INDEXES.isEmpty() )
+            {
+                return null;
+            }
+            String path = file.getAbsolutePath();
+            for ( LocalRepositoryIndex index : INDEXES.values() )
+            {
+                if ( index != null && path.startsWith( index.prefix ) )
+                {
+                    return index;
+                }
+            }
+            return null;
+        }
+    }
+
+    private String getPath( File file )
+    {
+        return file.getAbsolutePath().substring( prefix.length() ).replace( File.separatorChar, '/' );
+    }
+
+    /**
+     * Check if the index holds a file.
+     *
+     * @param path the path of the file, relative to the repository, with <code>/</code> separators
+     */
+    synchronized boolean contains( String path )
+    {
+        long hash = hash( path );
+        if ( !mightContain( hash ) )
+        {
+            return false;
+        }
+        int mask = capacity - 1;
+        for ( int slot = slot( hash ) & mask;; slot = ( slot + 1 ) & mask )
+        {
+            long value = buffer.getLong( tableOffset( slot ) );
+            if ( value == 0 )
+            {
+                return false;
+            }
+            if ( value == hash )
+            {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Add a file to the index.
+     *
+     * @param path the path of the file, relative to the repository, with <code>/</code> separators
+     */
+    synchronized void add( String path )
+    {
+        if ( ( size + 1 ) * 2 > capacity )
+        {
+            try
+            {
+                resize( capacity * 2 );
+            }
+            catch ( IOException e )
+            {
+                // keep the current table, which is still valid
+                return;
+            }
+        }
+        insert( hash( path ) );
+    }
+
+    /**
+     * Remove a file from the index. Its bits stay in the Bloom filter, which only costs a lookup in the table.
+     *
+     * @param path the path of the file, relative to the repository, with <code>/</code> separators
+     */
+    synchronized void remove( String path )
+    {
+        long hash = hash( path );
+        int mask = capacity - 1;
+        int slot = slot( hash ) & mask;
+        for ( ;; slot = ( slot + 1 ) & mask )
+        {
+            long value = buffer.getLong( tableOffset( slot ) );
+            if ( value == 0 )
+            {
+                return;
+            }
+            if ( value == hash )
+            {
+                break;
+            }
+        }
+
+        // shift back the next hashes of the run that can't be found anymore past the emptied slot
+        int next = slot;
+        for ( ;; )
+        {
+            next = ( next + 1 ) & mask;
+            long value = buffer.getLong( tableOffset( next ) );
+            if ( value == 0 )
+            {
+                break;
+            }
+            int home = slot( value ) & mask;
+            boolean reachable = slot <= next ? ( slot < home && home <= next ) : ( slot < home || home <= next );
+            if ( !reachable )
+            {
+                buffer.putLong( tableOffset( slot ), value );
+                slot = next;
+            }
+        }
+        buffer.putLong( tableOffset( slot ), 0 );
+
+        size--;
+        buffer.putInt( 12, size );
+    }
+
+    private void insert( long hash )
+    {
+        int mask = capacity - 1;
+        for ( int slot = slot( hash ) & mask;; slot = ( slot + 1 ) & mask )
+        {
+            int offset = tableOffset( slot );
+            long value = buffer.getLong( offset );
+            if ( value == hash )
+            {
+                return;
+            }
+            if ( value == 0 )
+            {
+                buffer.putLong( offset, hash );
+                break;
+            }
+        }
+
+        int bits = capacity * 8;
+        int h1 = (int) hash;
+        int h2 = (int) ( hash >>> 32 );
+        for ( int i = 0; i < BLOOM_HASHES; i++ )
+        {
+            int bit = ( h1 + i * h2 ) & ( bits - 1 );
+            int offset = HEADER_SIZE + ( bit >>> 3 );
+            buffer.put( offset, (byte) ( buffer.get( offset ) | ( 1 << ( bit & 7 ) ) ) );
+        }
+
+        size++;
+        buffer.putInt( 12, size );
+    }
+
+    private boolean mightContain( long hash )
+    {
+        int bits = capacity * 8;
+        int h1 = (int) hash;
+        int h2 = (int) ( hash >>> 32 );
+        for ( int i = 0; i < BLOOM_HASHES; i++ )
+        {
+            int bit = ( h1 + i * h2 ) & ( bits - 1 );
+            if ( ( buffer.get( HEADER_SIZE + ( bit >>> 3 ) ) & ( 1 << ( bit & 7 ) ) ) == 0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Map an existing index file.
+     *
+     * @return <code>false</code> if the file is not a valid index
+     */
+    private boolean map()
+        throws IOException
+    {
+        FileChannel channel = file.getChannel();
+        if ( channel.size() < HEADER_SIZE )
+        {
+            return false;
+        }
+        buffer = channel.map( FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE );
+        int fileCapacity = buffer.getInt( 8 );
+        if ( buffer.getInt( 0 ) != MAGIC || buffer.getInt( 4 ) != FORMAT || fileCapacity < MIN_CAPACITY
+            || Integer.bitCount( fileCapacity ) != 1 || channel.size() != getFileSize( fileCapacity ) )
+        {
+            return false;
+        }
+        capacity = fileCapacity;
+        size = buffer.getInt( 12 );
+        buffer = channel.map( FileChannel.MapMode.READ_WRITE, 0, getFileSize( capacity ) );
+        return true;
+    }
+
+    /**
+     * Rebuild the index with a new capacity, from the hashes of the current table.
+     */
+    private void resize( int newCapacity )
+        throws IOException
+    {
+        long[] hashes = new long[size];
+        int count = 0;
+        for ( int slot = 0; slot < capacity; slot++ )
+        {
+            long value = buffer.getLong( tableOffset( slot ) );
+            if ( value != 0 )
+            {
+                hashes[count++] = value;
+            }
+        }
+
+        FileChannel channel = file.getChannel();
+        long fileSize = getFileSize( newCapacity );
+        buffer = channel.map( FileChannel.MapMode.READ_WRITE, 0, fileSize );
+        for ( int offset = 0; offset < fileSize; offset += 8 )
+        {
+            buffer.putLong( offset, 0 );
+        }
+        buffer.putInt( 0, MAGIC );
+        buffer.putInt( 4, FORMAT );
+        buffer.putInt( 8, newCapacity );
+        capacity = newCapacity;
+        size = 0;
+        for ( int i = 0; i < count; i++ )
+        {
+            insert( hashes[i] );
+        }
+    }
+
+    private void scan( File dir, String path )
+    {
+        File[] files = dir.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+        for ( File f : files )
+        {
+            String name = path + f.getName();
+            if ( f.isDirectory() )
+            {
+                if ( !name.equals( NotFoundCache.CACHE_DIR ) )
+                {
+                    scan( f, name + "/" );
+                }
+            }
+            else
+            {
+                add( name );
+            }
+        }
+    }
+
+    private int tableOffset( int slot )
+    {
+        return HEADER_SIZE + capacity + slot * 8;
+    }
+
+    private static long getFileSize( int capacity )
+    {
+        // the header, 8 bits of Bloom filter and a 64-bit hash for each slot
+        return HEADER_SIZE + capacity + capacity * 8L;
+    }
+
+    private static int slot( long hash )
+    {
+        return (int) ( hash ^ ( hash >>> 32 ) );
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a path, mixed so that all the bits are usable. The value 0 marks an empty slot.
+     */
+    private static long hash( String path )
+    {
+        long hash = 0xcbf29ce484222325L;
+        for ( int i = 0; i < path.length(); i++ )
+        {
+            hash ^= path.charAt( i );
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    public String toString()
+    {
+        return "index of " + basedir + " (" + size + " files)";
+    }
+}
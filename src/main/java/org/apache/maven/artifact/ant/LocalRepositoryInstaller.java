@@ -0,0 +1,313 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.installer.ArtifactInstallationException;
+import org.apache.maven.artifact.metadata.ArtifactMetadata;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.metadata.RepositoryMetadataInstallationException;
+import org.apache.maven.artifact.repository.metadata.RepositoryMetadataManager;
+import org.apache.maven.artifact.transform.ArtifactTransformationManager;
+import org.apache.maven.project.artifact.ProjectArtifactMetadata;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Installs artifacts into the local repository like the artifact installer does, but copies the files with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, can write checksum files,
+ * and can leave alone the files and metadata of an artifact already installed with the same content.
+ *
+ * @since 2.1.4
+ */
+class LocalRepositoryInstaller
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Task task;
+
+    private final ArtifactTransformationManager transformationManager;
+
+    private final RepositoryMetadataManager repositoryMetadataManager;
+
+    private final ArtifactRepository localRepository;
+
+    private final List<String> checksums;
+
+    private final boolean skipUnchanged;
+
+    /**
+     * @param task the task logging the installation
+     * @param checksums the extensions of the checksum files to write with each file, or <code>null</code>
+     * @param skipUnchanged whether to leave alone the files already installed with the same content
+     */
+    LocalRepositoryInstaller( Task task, ArtifactTransformationManager transformationManager,
+                              RepositoryMetadataManager repositoryMetadataManager,
+                              ArtifactRepository localRepository, List<String> checksums, boolean skipUnchanged )
+    {
+        this.task = task;
+        this.transformationManager = transformationManager;
+        this.repositoryMetadataManager = repositoryMetadataManager;
+        this.localRepository = localRepository;
+        this.checksums = checksums;
+        this.skipUnchanged = skipUnchanged;
+    }
+
+    /**
+     * Install an artifact file and the metadata of the artifact.
+     *
+     * @param source the file to install
+     * @param artifact the artifact
+     * @throws ArtifactInstallationException if the file or the metadata can't be installed
+     */
+    void install( File source, Artifact artifact )
+        throws ArtifactInstallationException
+    {
+        boolean changed = installArtifactFile( source, artifact );
+
+        // must be after the artifact is installed
+        installMetadata( artifact.getMetadataList(), changed );
+    }
+
+    /**
+     * Install an artifact file, without the metadata the transformation added to the artifact. This method can be
+     * called concurrently.
+     *
+     * @param source the file to install
+     * @param artifact the artifact
+     * @return <code>false</code> if the file was left alone because it was already installed with the same content
+     * @throws ArtifactInstallationException if the file can't be installed
+     */
+    boolean installArtifactFile( File source, Artifact artifact )
+        throws ArtifactInstallationException
+    {
+        // a POM source file is transformed through the artifact file
+        boolean useArtifactFile = false;
+        File oldArtifactFile = artifact.getFile();
+        if ( "pom".equals( artifact.getType() ) )
+        {
+            artifact.setFile( source );
+            useArtifactFile = true;
+        }
+
+        try
+        {
+            transformationManager.transformForInstall( artifact, localRepository );
+
+            if ( useArtifactFile )
+            {
+                source = artifact.getFile();
+                artifact.setFile( oldArtifactFile );
+            }
+
+            File destination = new File( localRepository.getBasedir(), localRepository.pathOf( artifact ) );
+            boolean changed = installFile( source, destination, Project.MSG_INFO );
+
+            if ( useArtifactFile )
+            {
+                artifact.setFile( destination );
+            }
+            return changed;
+        }
+        catch ( IOException e )
+        {
+            throw new ArtifactInstallationException( "Error installing artifact: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Install artifact metadata.
+     *
+     * @param metadataList the metadata
+     * @param changed whether an artifact file of the metadata was changed, or else the existing repository metadata
+     *            is left alone when unchanged artifacts are skipped
+     * @throws ArtifactInstallationException if the metadata can't be installed
+     */
+    void installMetadata( Collection<?> metadataList, boolean changed )
+        throws ArtifactInstallationException
+    {
+        try
+        {
+            for ( Object o : metadataList )
+            {
+                ArtifactMetadata metadata = (ArtifactMetadata) o;
+                File file =
+                    new File( localRepository.getBasedir(),
+                              localRepository.pathOfLocalRepositoryMetadata( metadata, localRepository ) );
+                if ( metadata instanceof ProjectArtifactMetadata )
+                {
+                    if ( ( (ProjectArtifactMetadata) metadata ).getFile() == null )
+                    {
+                        continue;
+                    }
+                    // the POM is stored as metadata: install it as a file of its own
+                    installFile( ( (ProjectArtifactMetadata) metadata ).getFile(), file, Project.MSG_VERBOSE );
+                }
+                else if ( changed || !skipUnchanged || !file.exists() )
+                {
+                    repositoryMetadataManager.install( metadata, localRepository );
+                    LocalRepositoryIndex.fileAdded( file );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new ArtifactInstallationException( "Error installing artifact: " + e.getMessage(), e );
+        }
+        catch ( RepositoryMetadataInstallationException e )
+        {
+            throw new ArtifactInstallationException( "Error installing artifact's metadata: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Install a file and its checksum files.
+     *
+     * @param level the level of the installation message
+     * @return <code>false</code> if the file was left alone because it was already installed with the same content
+     */
+    private boolean installFile( File source, File destination, int level )
+        throws IOException
+    {
+        // one instance for each file, so that files can be installed concurrently
+        Checksums digests = checksums == null ? null : new Checksums( checksums );
+
+        if ( skipUnchanged && isIdentical( source, destination ) )
+        {
+            task.log( "Skipping " + source.getPath() + ", " + destination + " is up to date", Project.MSG_VERBOSE );
+            if ( digests != null && !digests.exist( destination ) )
+            {
+                Checksums.write( destination, digests.read( destination ) );
+            }
+            return false;
+        }
+
+        task.log( "Installing " + source.getPath() + " to " + destination, level );
+
+        if ( digests != null )
+        {
+            // the checksums need the bytes: copy them through the digests
+            Checksums.write( destination, digests.copy( source, destination ) );
+        }
+        else
+        {
+            copy( source, destination );
+        }
+        LocalRepositoryIndex.fileAdded( destination );
+        return true;
+    }
+
+    /**
+     * Whether two files have the same content.
+     */
+    static boolean isIdentical( File source, File destination )
+        throws IOException
+    {
+        if ( !destination.isFile() || source.length() != destination.length() )
+        {
+            return false;
+        }
+
+        InputStream in1 = null;
+        InputStream in2 = null;
+        try
+        {
+            in1 = new FileInputStream( source );
+            in2 = new FileInputStream( destination );
+            byte[] buffer1 = new byte[BUFFER_SIZE];
+            byte[] buffer2 = new byte[BUFFER_SIZE];
+            int n;
+            while ( ( n = in1.read( buffer1 ) ) != -1 )
+            {
+                int offset = 0;
+                while ( offset < n )
+                {
+                    int m = in2.read( buffer2, offset, n - offset );
+                    if ( m == -1 )
+                    {
+                        return false;
+                    }
+                    offset += m;
+                }
+                for ( int i = 0; i < n; i++ )
+                {
+                    if ( buffer1[i] != buffer2[i] )
+                    {
+                        return false;
+                    }
+                }
+            }
+            return in2.read() == -1;
+        }
+        finally
+        {
+            IOUtil.close( in1 );
+            IOUtil.close( in2 );
+        }
+    }
+
+    /**
+     * Copy a file with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, which lets
+     * the operating system copy the bytes without bringing them into the JVM. Nothing is done if the source is the
+     * destination.
+     */
+    static void copy( File source, File destination )
+        throws IOException
+    {
+        if ( source.getCanonicalFile().equals( destination.getCanonicalFile() ) )
+        {
+            return;
+        }
+        destination.getParentFile().mkdirs();
+
+        FileInputStream in = null;
+        FileOutputStream out = null;
+        try
+        {
+            in = new FileInputStream( source );
+            out = new FileOutputStream( destination );
+            FileChannel input = in.getChannel();
+            FileChannel output = out.getChannel();
+            long size = input.size();
+            long position = 0;
+            while ( position < size )
+            {
+                position += input.transferTo( position, size - position, output );
+            }
+            out.close();
+            out = null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+            IOUtil.close( out );
+        }
+        destination.setLastModified( source.lastModified() );
+    }
+}
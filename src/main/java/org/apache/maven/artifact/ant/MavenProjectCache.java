@@ -0,0 +1,236 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.model.Activation;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Profile;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.settings.Settings;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReaderFactory;
+
+/**
+ * JVM wide cache of the projects built from POM files, so that a POM referenced by many tasks is parsed, inherited
+ * and interpolated once.
+ * <p>
+ * An entry is found by the canonical POM file, a digest of its content and of the profiles and repositories used to
+ * build it. It is then validated against the state the project was built from: the settings instance, the parent POM
+ * files, and the value of each property the POM and its parents reference or activate profiles with.
+ * The cached projects are never handed out: callers get a copy they can modify.
+ * </p>
+ *
+ * @since 2.1.4
+ */
+class MavenProjectCache
+{
+    private static final int MAX_ENTRIES = 64;
+
+    private static final Pattern EXPRESSION = Pattern.compile( "\\$\\{([^}]+)\\}" );
+
+    private static final Map<String, CachedProject> CACHE =
+        new LinkedHashMap<String, CachedProject>( MAX_ENTRIES, 0.75f, true )
+    {
+        protected boolean removeEldestEntry( Map.Entry<String, CachedProject> eldest )
+        {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private MavenProjectCache()
+    {
+        // no instances
+    }
+
+    /**
+     * Get a copy of the project cached for the given key, if it is still valid.
+     *
+     * @param key the key computed by the caller from the POM file and the build configuration
+     * @param settings the settings the project would be built with
+     * @param properties the properties the project would be interpolated with
+     * @return a copy of the cached project, or <code>null</code>
+     */
+    static MavenProject get( String key, Settings settings, Properties properties )
+    {
+        CachedProject entry;
+        synchronized ( CACHE )
+        {
+            entry = CACHE.get( key );
+        }
+        if ( entry == null || !entry.isValid( settings, properties ) )
+        {
+            return null;
+        }
+        return copy( entry.project );
+    }
+
+    /**
+     * Cache a project built from a POM file.
+     *
+     * @param key the key computed by the caller from the POM file and the build configuration
+     * @param project the project, which must not be modified afterwards
+     * @param settings the settings the project was built with
+     * @param properties the properties the project was interpolated with
+     * @throws IOException if a POM can't be read
+     */
+    static void put( String key, MavenProject project, Settings settings, Properties properties )
+        throws IOException
+    {
+        CachedProject entry = new CachedProject( project, settings, properties );
+        synchronized ( CACHE )
+        {
+            CACHE.put( key, entry );
+        }
+    }
+
+    /**
+     * Copy a project, keeping its parent which is shared and never modified.
+     */
+    static MavenProject copy( MavenProject project )
+    {
+        MavenProject copy;
+        try
+        {
+            copy = (MavenProject) project.clone();
+        }
+        catch ( CloneNotSupportedException e )
+        {
+            throw new IllegalStateException( "Unable to copy project " + project.getId() + ": " + e.getMessage() );
+        }
+        copy.setParent( project.getParent() );
+        return copy;
+    }
+
+    private static class CachedProject
+    {
+        private final MavenProject project;
+
+        private final Settings settings;
+
+        private final List<File> files = new ArrayList<File>();
+
+        private final List<Long> fileStamps = new ArrayList<Long>();
+
+        private final Map<String, String> properties = new HashMap<String, String>();
+
+        CachedProject( MavenProject project, Settings settings, Properties buildProperties )
+            throws IOException
+        {
+            this.project = project;
+            this.settings = settings;
+
+            for ( MavenProject p = project; p != null; p = p.getParent() )
+            {
+                File file = p.getFile();
+                if ( file != null && file.isFile() )
+                {
+                    files.add( file );
+                    fileStamps.add( Long.valueOf( stamp( file ) ) );
+                    addExpressions( file, buildProperties );
+                }
+                addActivationProperties( p.getOriginalModel(), buildProperties );
+            }
+        }
+
+        private void addExpressions( File file, Properties buildProperties )
+            throws IOException
+        {
+            Reader reader = ReaderFactory.newXmlReader( file );
+            String content;
+            try
+            {
+                content = IOUtil.toString( reader );
+            }
+            finally
+            {
+                IOUtil.close( reader );
+            }
+
+            Matcher matcher = EXPRESSION.matcher( content );
+            while ( matcher.find() )
+            {
+                String name = matcher.group( 1 );
+                properties.put( name, buildProperties.getProperty( name ) );
+            }
+        }
+
+        private void addActivationProperties( Model model, Properties buildProperties )
+        {
+            if ( model == null )
+            {
+                return;
+            }
+            for ( Object o : model.getProfiles() )
+            {
+                Activation activation = ( (Profile) o ).getActivation();
+                if ( activation != null && activation.getProperty() != null )
+                {
+                    String name = activation.getProperty().getName();
+                    if ( name != null )
+                    {
+                        name = name.startsWith( "!" ) ? name.substring( 1 ) : name;
+                        properties.put( name, buildProperties.getProperty( name ) );
+                    }
+                }
+            }
+        }
+
+        boolean isValid( Settings currentSettings, Properties currentProperties )
+        {
+            if ( settings != currentSettings )
+            {
+                return false;
+            }
+            for ( int i = 0; i < files.size(); i++ )
+            {
+                if ( stamp( files.get( i ) ) != fileStamps.get( i ).longValue() )
+                {
+                    return false;
+                }
+            }
+            for ( Map.Entry<String, String> property : properties.entrySet() )
+            {
+                String value = currentProperties.getProperty( property.getKey() );
+                if ( value == null ? property.getValue() != null : !value.equals( property.getValue() ) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long stamp( File file )
+        {
+            return file.lastModified() * 31 + file.length();
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ant.util.FileUtil;
+import org.apache.maven.artifact.manager.WagonManager;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.tools.ant.Project;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Persistent record of the artifacts that were not found in a remote repository, stored in the local repository.
+ * Each entry is keyed by the repository id and the artifact coordinates, and is ignored once it is older than the
+ * configured time to live, so that artifacts published later are eventually found.
+ * Snapshots are never recorded, since their update policy already controls how often they are checked.
+ * <p>
+ * Maven reports an artifact as missing once every repository failed, whatever the failure: only the repositories
+ * which answered that the file does not exist, as seen by the {@link AntDownloadMonitor download monitor}, are
+ * recorded, so that a timeout or a reset connection is retried at the next build. The cache file is shared by the
+ * builds using the local repository: it is merged with the entries written by other builds when saved.
+ * </p>
+ *
+ * @since 2.1.4
+ */
+class NotFoundCache
+{
+    /**
+     * The directory of the cache files of the tasks, relative to the local repository.
+     */
+    static final String CACHE_DIR = ".cache/maven-ant-tasks";
+
+    /**
+     * The location of the cache file, relative to the local repository.
+     */
+    static final String CACHE_FILE = CACHE_DIR + "/not-found.properties";
+
+    /**
+     * The URLs of the repositories which answered that a file does not exist, by local file, until the miss is
+     * recorded or the build session ends.
+     */
+    private static final Map<File, Set<String>> NOT_FOUND = new HashMap<File, Set<String>>();
+
+    static
+    {
+        BuildSession.addListener( new BuildSession.Listener()
+        {
+            public void sessionEnded( Project project )
+            {
+                synchronized ( NOT_FOUND )
+                {
+                    NOT_FOUND.clear();
+                }
+            }
+        } );
+    }
+
+    private final File file;
+
+    private final ArtifactRepository localRepository;
+
+    private final WagonManager wagonManager;
+
+    private final long ttl;
+
+    private final Properties entries = new Properties();
+
+    private boolean modified;
+
+    /**
+     * Load the cache of a local repository.
+     *
+     * @param localRepository the local repository holding the cache file
+     * @param wagonManager the wagon manager, to find the mirror of a repository
+     * @param ttl the time to live of an entry, in milliseconds
+     */
+    NotFoundCache( ArtifactRepository localRepository, WagonManager wagonManager, long ttl )
+    {
+        this.file = new File( localRepository.getBasedir(), CACHE_FILE );
+        this.localRepository = localRepository;
+        this.wagonManager = wagonManager;
+        this.ttl = ttl;
+
+        load( file, entries );
+    }
+
+    private static void load( File file, Properties entries )
+    {
+        if ( file.exists() )
+        {
+            InputStream in = null;
+            try
+            {
+                in = new FileInputStream( file );
+                entries.load( in );
+            }
+            catch ( IOException e )
+            {
+                // a damaged cache only costs the remote lookups again
+                entries.clear();
+            }
+            finally
+            {
+                IOUtil.close( in );
+            }
+        }
+    }
+
+    /**
+     * Note that a repository answered that a file does not exist, as opposed to failing to answer.
+     *
+     * @param localFile the file of the local repository the download was for
+     * @param repositoryUrl the URL of the repository, or of its mirror
+     */
+    static void notFound( File localFile, String repositoryUrl )
+    {
+        synchronized ( NOT_FOUND )
+        {
+            Set<String> urls = NOT_FOUND.get( localFile );
+            if ( urls == null )
+            {
+                urls = new HashSet<String>();
+                NOT_FOUND.put( localFile, urls );
+            }
+            urls.add( normalize( repositoryUrl ) );
+        }
+    }
+
+    /**
+     * Remove the repositories where the artifact is known to be missing.
+     *
+     * @param artifact the artifact to look for
+     * @param remoteRepositories the repositories to search
+     * @return the repositories that are still worth searching
+     */
+    synchronized List<ArtifactRepository> filter( Artifact artifact, List<ArtifactRepository> remoteRepositories )
+    {
+        if ( artifact.isSnapshot() )
+        {
+            return remoteRepositories;
+        }
+
+        long now = System.currentTimeMillis();
+        List<ArtifactRepository> result = new ArrayList<ArtifactRepository>( remoteRepositories.size() );
+        for ( ArtifactRepository repository : remoteRepositories )
+        {
+            String missed = entries.getProperty( getKey( repository, artifact ) );
+            if ( missed == null || isExpired( missed, now ) )
+            {
+                result.add( repository );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check if the artifact is known to be missing from all the repositories.
+     */
+    boolean isMissing( Artifact artifact, List<ArtifactRepository> remoteRepositories )
+    {
+        return !artifact.isSnapshot() && filter( artifact, remoteRepositories ).isEmpty();
+    }
+
+    /**
+     * Record that the artifact was not found in the given repositories, for the repositories which answered that it
+     * does not exist: the others may only have been unreachable.
+     */
+    synchronized void recordMissing( Artifact artifact, List<ArtifactRepository> remoteRepositories )
+    {
+        if ( artifact.isSnapshot() )
+        {
+            return;
+        }
+
+        Set<String> urls;
+        synchronized ( NOT_FOUND )
+        {
+            urls = NOT_FOUND.remove( new File( localRepository.getBasedir(), localRepository.pathOf( artifact ) ) );
+        }
+
+        String now = Long.toString( System.currentTimeMillis() );
+        for ( ArtifactRepository repository : remoteRepositories )
+        {
+            // a disabled repository is never searched
+            if ( !repository.getReleases().isEnabled() || ( urls != null && urls.contains(
+                normalize( wagonManager.getMirrorRepository( repository ).getUrl() ) ) ) )
+            {
+                entries.setProperty( getKey( repository, artifact ), now );
+                modified = true;
+            }
+        }
+    }
+
+    /**
+     * Write the cache back to the local repository if it changed, merged with the entries saved by other builds since
+     * it was loaded, and dropping the expired entries.
+     */
+    synchronized void save()
+        throws IOException
+    {
+        if ( !modified )
+        {
+            return;
+        }
+
+        Properties saved = new Properties();
+        load( file, saved );
+        for ( Map.Entry<Object, Object> entry : saved.entrySet() )
+        {
+            String missed = entries.getProperty( (String) entry.getKey() );
+            if ( missed == null || getTime( missed ) < getTime( (String) entry.getValue() ) )
+            {
+                entries.put( entry.getKey(), entry.getValue() );
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        for ( Iterator<Map.Entry<Object, Object>> i = entries.entrySet().iterator(); i.hasNext(); )
+        {
+            if ( isExpired( (String) i.next().getValue(), now ) )
+            {
+                i.remove();
+            }
+        }
+
+        File temp = FileUtil.createTempFile( file );
+        OutputStream out = null;
+        try
+        {
+            out = new FileOutputStream( temp );
+            entries.store( out, "Artifacts not found in remote repositories" );
+            out.close();
+            out = null;
+            FileUtil.replace( temp, file );
+        }
+        finally
+        {
+            IOUtil.close( out );
+            temp.delete();
+        }
+        modified = false;
+    }
+
+    private boolean isExpired( String missed, long now )
+    {
+        return now - getTime( missed ) > ttl;
+    }
+
+    private static long getTime( String missed )
+    {
+        try
+        {
+            return Long.parseLong( missed );
+        }
+        catch ( NumberFormatException e )
+        {
+            return 0;
+        }
+    }
+
+    private static String normalize( String url )
+    {
+        return url.endsWith( "/" ) ? url.substring( 0, url.length() - 1 ) : url;
+    }
+
+    private static String getKey( ArtifactRepository repository, Artifact artifact )
+    {
+        StringBuffer key = new StringBuffer( repository.getId() );
+        key.append( '|' ).append( artifact.getGroupId() );
+        key.append( ':' ).append( artifact.getArtifactId() );
+        key.append( ':' ).append( artifact.getType() );
+        if ( artifact.hasClassifier() )
+        {
+            key.append( ':' ).append( artifact.getClassifier() );
+        }
+        key.append( ':' ).append( artifact.getVersion() );
+        return key.toString();
+    }
+}
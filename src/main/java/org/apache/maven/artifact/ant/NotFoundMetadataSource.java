@@ -0,0 +1,139 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.metadata.ArtifactMetadataRetrievalException;
+import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
+import org.apache.maven.artifact.metadata.ResolutionGroup;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.tools.ant.Project;
+
+/**
+ * Artifact metadata source that consults a {@link NotFoundCache} before looking for a POM in the remote
+ * repositories. A dependency without POM is handled by Maven as a dependency without dependencies, but the POM is
+ * searched again in every remote repository at each build: once the miss is recorded, the POM is only looked for in
+ * the local repository until the cache entry expires, Maven handling it as usual.
+ *
+ * @since 2.1.4
+ */
+// the Maven 2 metadata source API passes the repositories as raw Lists
+@SuppressWarnings( "rawtypes" )
+class NotFoundMetadataSource
+    implements ArtifactMetadataSource
+{
+    private final ArtifactMetadataSource delegate;
+
+    private final ArtifactFactory artifactFactory;
+
+    private final NotFoundCache cache;
+
+    private final Project project;
+
+    NotFoundMetadataSource( ArtifactMetadataSource delegate, ArtifactFactory artifactFactory, NotFoundCache cache,
+                            Project project )
+    {
+        this.delegate = delegate;
+        this.artifactFactory = artifactFactory;
+        this.cache = cache;
+        this.project = project;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public ResolutionGroup retrieve( Artifact artifact, ArtifactRepository localRepository, List remoteRepositories )
+        throws ArtifactMetadataRetrievalException
+    {
+        Artifact pomArtifact = createPomArtifact( artifact );
+        if ( isKnownMissing( pomArtifact, localRepository, remoteRepositories ) )
+        {
+            return delegate.retrieve( artifact, localRepository, Collections.EMPTY_LIST );
+        }
+
+        ResolutionGroup group = delegate.retrieve( artifact, localRepository, remoteRepositories );
+
+        recordIfMissing( pomArtifact, localRepository, remoteRepositories );
+
+        return group;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public Artifact retrieveRelocatedArtifact( Artifact artifact, ArtifactRepository localRepository,
+                                               List remoteRepositories )
+        throws ArtifactMetadataRetrievalException
+    {
+        Artifact pomArtifact = createPomArtifact( artifact );
+        if ( isKnownMissing( pomArtifact, localRepository, remoteRepositories ) )
+        {
+            return delegate.retrieveRelocatedArtifact( artifact, localRepository, Collections.EMPTY_LIST );
+        }
+
+        Artifact relocated = delegate.retrieveRelocatedArtifact( artifact, localRepository, remoteRepositories );
+
+        recordIfMissing( pomArtifact, localRepository, remoteRepositories );
+
+        return relocated;
+    }
+
+    public List retrieveAvailableVersions( Artifact artifact, ArtifactRepository localRepository,
+                                           List remoteRepositories )
+        throws ArtifactMetadataRetrievalException
+    {
+        return delegate.retrieveAvailableVersions( artifact, localRepository, remoteRepositories );
+    }
+
+    private Artifact createPomArtifact( Artifact artifact )
+    {
+        return artifactFactory.createProjectArtifact( artifact.getGroupId(), artifact.getArtifactId(),
+                                                      artifact.getVersion(), artifact.getScope() );
+    }
+
+    private boolean isKnownMissing( Artifact pomArtifact, ArtifactRepository localRepository,
+                                    List<ArtifactRepository> remoteRepositories )
+    {
+        if ( Artifact.SCOPE_SYSTEM.equals( pomArtifact.getScope() )
+            || new File( localRepository.getBasedir(), localRepository.pathOf( pomArtifact ) ).exists() )
+        {
+            return false;
+        }
+
+        if ( cache.isMissing( pomArtifact, remoteRepositories ) )
+        {
+            project.log( "POM for " + pomArtifact + " is known to be missing: skipping the remote repositories",
+                         Project.MSG_VERBOSE );
+            return true;
+        }
+        return false;
+    }
+
+    private void recordIfMissing( Artifact pomArtifact, ArtifactRepository localRepository,
+                                  List<ArtifactRepository> remoteRepositories )
+    {
+        if ( !Artifact.SCOPE_SYSTEM.equals( pomArtifact.getScope() )
+            && !new File( localRepository.getBasedir(), localRepository.pathOf( pomArtifact ) ).exists() )
+        {
+            cache.recordMissing( pomArtifact, remoteRepositories );
+        }
+    }
+}
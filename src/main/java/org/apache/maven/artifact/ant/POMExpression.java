@@ -0,0 +1,235 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.introspection.ReflectionValueExtractor;
+
+/**
+ * A POM expression like <code>project.build.finalName</code> compiled once into a chain of getter accessors, to avoid
+ * parsing the expression and discovering the getters at each evaluation.
+ * <p>
+ * The evaluation gives the same result as {@link ReflectionValueExtractor#evaluate(String, Object)}: the root token is
+ * skipped, then for each token the <code>get</code> or <code>is</code> getter of the current value is called, and a
+ * <code>null</code> value or a missing getter gives <code>null</code>. Expressions with indexed or mapped tokens,
+ * like <code>project.dependencies[0]</code>, are still evaluated by {@link ReflectionValueExtractor}.
+ * </p>
+ *
+ * @since 2.1.4
+ */
+class POMExpression
+{
+    private static final int MAX_ENTRIES = 1024;
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private static final Map<String, POMExpression> CACHE =
+        new LinkedHashMap<String, POMExpression>( MAX_ENTRIES, 0.75f, true )
+        {
+            protected boolean removeEldestEntry( Map.Entry<String, POMExpression> eldest )
+            {
+                return size() > MAX_ENTRIES;
+            }
+        };
+
+    private final String expression;
+
+    /**
+     * The accessors of the tokens, or <code>null</code> if the expression can't be compiled.
+     */
+    private final Accessor[] accessors;
+
+    private POMExpression( String expression )
+    {
+        this.expression = expression;
+
+        if ( expression.indexOf( '[' ) >= 0 || expression.indexOf( '(' ) >= 0 )
+        {
+            accessors = null;
+        }
+        else
+        {
+            // the root token refers to the object the expression is evaluated on
+            StringTokenizer tokens = new StringTokenizer( expression.substring( expression.indexOf( '.' ) + 1 ), "." );
+            accessors = new Accessor[tokens.countTokens()];
+            for ( int i = 0; i < accessors.length; i++ )
+            {
+                accessors[i] = new Accessor( tokens.nextToken() );
+            }
+        }
+    }
+
+    /**
+     * Get the compiled expression.
+     *
+     * @param expression the expression, starting with the root token
+     * @return the compiled expression
+     */
+    static POMExpression compile( String expression )
+    {
+        synchronized ( CACHE )
+        {
+            POMExpression compiled = CACHE.get( expression );
+            if ( compiled == null )
+            {
+                compiled = new POMExpression( expression );
+                CACHE.put( expression, compiled );
+            }
+            return compiled;
+        }
+    }
+
+    /**
+     * Evaluate the expression.
+     *
+     * @param root the object the root token refers to
+     * @return the value, or <code>null</code>
+     * @throws Exception if a getter fails
+     */
+    Object evaluate( Object root )
+        throws Exception
+    {
+        if ( accessors == null )
+        {
+            return ReflectionValueExtractor.evaluate( expression, root );
+        }
+
+        Object value = root;
+        for ( Accessor accessor : accessors )
+        {
+            if ( value == null )
+            {
+                return null;
+            }
+            Method method = accessor.getMethod( value.getClass() );
+            if ( method == null )
+            {
+                return null;
+            }
+            try
+            {
+                value = method.invoke( value, NO_ARGS );
+            }
+            catch ( InvocationTargetException e )
+            {
+                if ( e.getCause() instanceof IndexOutOfBoundsException )
+                {
+                    return null;
+                }
+                throw e;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * The getter of a token, cached for the last class it was looked up in.
+     */
+    private static class Accessor
+    {
+        private final String getterName;
+
+        private final String booleanGetterName;
+
+        private volatile Resolution resolution;
+
+        Accessor( String token )
+        {
+            String methodBase = StringUtils.capitalizeFirstLetter( token );
+            this.getterName = "get" + methodBase;
+            this.booleanGetterName = "is" + methodBase;
+        }
+
+        Method getMethod( Class<?> type )
+        {
+            Resolution current = resolution;
+            if ( current == null || current.type != type )
+            {
+                current = new Resolution( type, findMethod( type ) );
+                resolution = current;
+            }
+            return current.method;
+        }
+
+        private Method findMethod( Class<?> type )
+        {
+            Method method = findMethod( type, getterName );
+            if ( method == null )
+            {
+                method = findMethod( type, booleanGetterName );
+            }
+            return method;
+        }
+
+        /**
+         * Find a public getter declared by a public class or interface, like the introspection of
+         * {@link ReflectionValueExtractor} does.
+         */
+        private static Method findMethod( Class<?> type, String name )
+        {
+            for ( Class<?> c = type; c != null; c = c.getSuperclass() )
+            {
+                if ( Modifier.isPublic( c.getModifiers() ) )
+                {
+                    try
+                    {
+                        return c.getMethod( name, new Class<?>[0] );
+                    }
+                    catch ( NoSuchMethodException e )
+                    {
+                        return null;
+                    }
+                }
+                for ( Class<?> i : c.getInterfaces() )
+                {
+                    Method method = findMethod( i, name );
+                    if ( method != null )
+                    {
+                        return method;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The getter found in a class, or <code>null</code> if the class has none.
+     */
+    private static class Resolution
+    {
+        private final Class<?> type;
+
+        private final Method method;
+
+        Resolution( Class<?> type, Method method )
+        {
+            this.type = type;
+            this.method = method;
+        }
+    }
+}
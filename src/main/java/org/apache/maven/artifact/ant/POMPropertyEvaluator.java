@@ -19,10 +19,12 @@ package org.apache.maven.artifact.ant;
  * under the License.
  */
 
+import org.apache.tools.ant.Project;
 import org.apache.tools.ant.PropertyHelper;
 
 /**
  * POM Property Delegate, for Ant 1.8.0.
+ * A single delegate is added to the property helper of a project, and dispatches to the poms by id.
  *
  * @since maven-ant-tasks 2.1.1
  */
@@ -30,22 +32,41 @@ class POMPropertyEvaluator
     extends POMPropertyHelper
     implements PropertyHelper.PropertyEvaluator
 {
+    /**
+     * The property helper this delegate was added to.
+     */
+    private final PropertyHelper propertyHelper;
 
-    public static void register( Pom pom, PropertyHelper propertyHelper )
+    public static synchronized void register( Pom pom, PropertyHelper propertyHelper )
     {
-        propertyHelper.add( new POMPropertyEvaluator( pom ) );
+        Project project = pom.getProject();
+        Object reference = project.getReference( REFERENCE );
+
+        POMPropertyEvaluator evaluator;
+        if ( reference instanceof POMPropertyEvaluator
+            && ( (POMPropertyEvaluator) reference ).propertyHelper == propertyHelper )
+        {
+            evaluator = (POMPropertyEvaluator) reference;
+        }
+        else
+        {
+            evaluator = new POMPropertyEvaluator( propertyHelper );
+            propertyHelper.add( evaluator );
+            project.addReference( REFERENCE, evaluator );
+        }
+        evaluator.addPom( pom );
     }
 
-    private POMPropertyEvaluator( Pom pom )
+    private POMPropertyEvaluator( PropertyHelper propertyHelper )
     {
-        super( pom );
+        this.propertyHelper = propertyHelper;
     }
 
     public Object evaluate( String property, PropertyHelper propertyHelper )
     {
-        String prefix = pom.antId + ".";
+        Pom pom = getPom( property );
 
-        if ( !property.startsWith( prefix ) )
+        if ( pom == null )
         {
             return null;
         }
@@ -53,8 +74,7 @@ class POMPropertyEvaluator
         try
         {
             // else handle the property resolution
-            String expression = property.substring( prefix.length() );
-            return getPOMValue( "project." + expression );
+            return getPOMValue( pom, property );
         }
         catch ( Exception ex )
         {
@@ -19,22 +19,78 @@ package org.apache.maven.artifact.ant;
  * under the License.
  */
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
 import org.apache.tools.ant.PropertyHelper;
-import org.codehaus.plexus.util.introspection.ReflectionValueExtractor;
 
 /**
- * The property intercepter that handles the calls for "pom." properties in Ant 1.6 - 1.7.1
+ * The property intercepter that handles the calls for "pom." properties in Ant 1.6 - 1.7.1.
+ * A single intercepter serves all the poms of a project: the pom is found from the property name with a lookup
+ * by id, so the cost of resolving a property doesn't depend on the number of poms.
  */
 class POMPropertyHelper
     extends PropertyHelper
 {
 
-    protected final Pom pom;
+    /**
+     * The reference of the intercepter or delegate of a project.
+     */
+    static final String REFERENCE = POMPropertyHelper.class.getName();
+
+    /**
+     * The poms by id.
+     */
+    private final Map<String, Pom> poms = new ConcurrentHashMap<String, Pom>();
+
+    POMPropertyHelper()
+    {
+    }
+
+    /**
+     * Add a pom to the intercepter already chained to the given property helper, or chain a new intercepter.
+     */
+    @SuppressWarnings( "deprecation" ) // the chaining of Ant 1.6 - 1.7.1, replaced by delegates in Ant 1.8.0
+    public static synchronized void register( Pom pom, PropertyHelper propertyHelper )
+    {
+        for ( PropertyHelper next = propertyHelper.getNext(); next != null; next = next.getNext() )
+        {
+            if ( next instanceof POMPropertyHelper )
+            {
+                ( (POMPropertyHelper) next ).addPom( pom );
+                return;
+            }
+        }
+
+        POMPropertyHelper helper = new POMPropertyHelper();
+        helper.addPom( pom );
+        helper.setNext( propertyHelper.getNext() );
+        helper.setProject( pom.getProject() );
+        propertyHelper.setNext( helper );
+        pom.getProject().addReference( REFERENCE, helper );
+    }
+
+    /**
+     * Find the pom which resolves a property of a project.
+     *
+     * @param project the Ant project
+     * @param name the property name
+     * @return the pom, or <code>null</code> if the property isn't a pom property
+     */
+    static Pom getPom( Project project, String name )
+    {
+        Object reference = project.getReference( REFERENCE );
+        return ( reference instanceof POMPropertyHelper ) ? ( (POMPropertyHelper) reference ).getPom( name ) : null;
+    }
 
-    POMPropertyHelper( Pom pom )
+    /**
+     * Add a pom, replacing any pom previously registered with the same id.
+     */
+    void addPom( Pom pom )
     {
-        this.pom = pom;
+        poms.put( pom.antId, pom );
     }
 
     /**
@@ -42,9 +98,9 @@ class POMPropertyHelper
      */
     public Object getPropertyHook( String ns, String name, boolean user )
     {
-        String prefix = this.pom.antId + ".";
+        Pom pom = getPom( name );
 
-        if ( !name.startsWith( prefix ) )
+        if ( pom == null )
         {
             // pass on to next interceptor
             return super.getPropertyHook( ns, name, user );
@@ -52,8 +108,7 @@ class POMPropertyHelper
         try
         {
             // else handle the property resolution
-            String expression = name.substring( prefix.length() );
-            return getPOMValue( "project." + expression );
+            return getPOMValue( pom, name );
         }
         catch ( Exception ex )
         {
@@ -62,10 +117,42 @@ class POMPropertyHelper
         }
     }
 
+    /**
+     * Find the pom whose id followed by a dot starts the property name. When several ids match, as with
+     * <code>a</code> and <code>a.b</code> for <code>a.b.c</code>, the longest one is used.
+     *
+     * @param name the property name
+     * @return the pom, or <code>null</code> if the property isn't a pom property
+     */
+    protected Pom getPom( String name )
+    {
+        if ( poms.isEmpty() )
+        {
+            return null;
+        }
+        for ( int dot = name.lastIndexOf( '.' ); dot > 0; dot = name.lastIndexOf( '.', dot - 1 ) )
+        {
+            Pom pom = poms.get( name.substring( 0, dot ) );
+            if ( pom != null )
+            {
+                return pom;
+            }
+        }
+        return null;
+    }
+
     private static final String PROPERTIES_PREFIX = "project.properties.";
 
-    protected Object getPOMValue( String expression )
+    /**
+     * Get the value of a pom property.
+     *
+     * @param pom the pom found by {@link #getPom(String)}
+     * @param name the property name, starting with the pom id
+     * @return the value
+     */
+    protected Object getPOMValue( Pom pom, String name )
     {
+        String expression = "project." + name.substring( pom.antId.length() + 1 );
         Object value = null;
 
         try
@@ -77,7 +164,7 @@ class POMPropertyHelper
             }
             else
             {
-                value = ReflectionValueExtractor.evaluate( expression, pom.getMavenProject() );
+                value = POMExpression.compile( expression ).evaluate( pom.getMavenProject() );
             }
         }
         catch ( Exception e )
@@ -0,0 +1,237 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.factory.ArtifactFactory;
+import org.apache.maven.artifact.metadata.ArtifactMetadataRetrievalException;
+import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
+import org.apache.maven.artifact.metadata.ResolutionGroup;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.artifact.resolver.ArtifactResolver;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.tools.ant.Project;
+
+/**
+ * Artifact metadata source that downloads the POMs of the next level of the dependency graph concurrently.
+ * <p>
+ * The artifact collector walks the graph serially, and each POM it reads from a remote repository costs a
+ * round trip. Each time the collector retrieves the metadata of a node, this source submits the download of the
+ * POMs of all its children to a bounded pool, before returning the children to the collector. When the collector
+ * later reaches a child, it waits for the pending download and then reads the POM from the local repository.
+ * Parsing, conflict resolution and ordering are left to the collector and the delegate, so the result is exactly
+ * the same as a serial resolution.
+ * </p>
+ *
+ * @since 2.1.4
+ */
+// raw Lists are imposed by the ArtifactMetadataSource interface of Maven 2
+@SuppressWarnings( "rawtypes" )
+class ParallelMetadataSource
+    implements ArtifactMetadataSource
+{
+    private final ArtifactMetadataSource delegate;
+
+    private final ArtifactResolver resolver;
+
+    private final ArtifactFactory artifactFactory;
+
+    private final Map<String, Artifact> managedVersions;
+
+    private final ArtifactFilter filter;
+
+    private final ExecutorService executor;
+
+    private final NotFoundCache notFoundCache;
+
+    private final Project project;
+
+    /**
+     * The POM downloads submitted to the pool, by groupId:artifactId:version.
+     */
+    private final ConcurrentMap<String, Future<?>> prefetches = new ConcurrentHashMap<String, Future<?>>();
+
+    ParallelMetadataSource( ArtifactMetadataSource delegate, ArtifactResolver resolver,
+                            ArtifactFactory artifactFactory, Map<String, Artifact> managedVersions,
+                            ArtifactFilter filter, ExecutorService executor, NotFoundCache notFoundCache,
+                            Project project )
+    {
+        this.delegate = delegate;
+        this.resolver = resolver;
+        this.artifactFactory = artifactFactory;
+        this.managedVersions = managedVersions == null ? Collections.<String, Artifact>emptyMap() : managedVersions;
+        this.filter = filter;
+        this.executor = executor;
+        this.notFoundCache = notFoundCache;
+        this.project = project;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public ResolutionGroup retrieve( Artifact artifact, ArtifactRepository localRepository, List remoteRepositories )
+        throws ArtifactMetadataRetrievalException
+    {
+        awaitPrefetch( artifact );
+
+        ResolutionGroup group = delegate.retrieve( artifact, localRepository, remoteRepositories );
+
+        if ( group != null && group.getArtifacts() != null )
+        {
+            prefetch( group.getArtifacts(), artifact.getDependencyFilter(), localRepository,
+                      group.getResolutionRepositories() );
+        }
+
+        return group;
+    }
+
+    public Artifact retrieveRelocatedArtifact( Artifact artifact, ArtifactRepository localRepository,
+                                               List remoteRepositories )
+        throws ArtifactMetadataRetrievalException
+    {
+        awaitPrefetch( artifact );
+
+        return delegate.retrieveRelocatedArtifact( artifact, localRepository, remoteRepositories );
+    }
+
+    public List retrieveAvailableVersions( Artifact artifact, ArtifactRepository localRepository,
+                                           List remoteRepositories )
+        throws ArtifactMetadataRetrievalException
+    {
+        return delegate.retrieveAvailableVersions( artifact, localRepository, remoteRepositories );
+    }
+
+    /**
+     * Submit the download of the POMs of the given artifacts which are not yet in the local repository.
+     * Artifacts with a version range are skipped, since their version is only known once the collector has
+     * selected it.
+     *
+     * @param artifacts the artifacts whose POM will be needed
+     * @param dependencyFilter the exclusions of the parent node, or <code>null</code>
+     * @param localRepository the local repository
+     * @param remoteRepositories the repositories to download from
+     */
+    void prefetch( Collection<Artifact> artifacts, ArtifactFilter dependencyFilter,
+                   final ArtifactRepository localRepository, final List<ArtifactRepository> remoteRepositories )
+    {
+        for ( Artifact artifact : artifacts )
+        {
+            if ( Artifact.SCOPE_SYSTEM.equals( artifact.getScope() ) || artifact.isOptional()
+                || ( dependencyFilter != null && !dependencyFilter.include( artifact ) )
+                || ( filter != null && !filter.include( artifact ) ) )
+            {
+                continue;
+            }
+
+            String version = artifact.getVersion();
+            Artifact managed = managedVersions.get( artifact.getDependencyConflictId() );
+            if ( managed != null && managed.getVersion() != null )
+            {
+                version = managed.getVersion();
+            }
+            if ( version == null )
+            {
+                continue;
+            }
+
+            final Artifact pomArtifact =
+                artifactFactory.createProjectArtifact( artifact.getGroupId(), artifact.getArtifactId(), version );
+            if ( !pomArtifact.isSnapshot()
+                && LocalRepositoryIndex.exists( localRepository, localRepository.pathOf( pomArtifact ) ) )
+            {
+                continue;
+            }
+            if ( notFoundCache != null && notFoundCache.isMissing( pomArtifact, remoteRepositories ) )
+            {
+                continue;
+            }
+
+            FutureTask<Object> task = new FutureTask<Object>( new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        resolver.resolve( pomArtifact, remoteRepositories, localRepository );
+                    }
+                    catch ( ArtifactResolutionException e )
+                    {
+                        // the collector will report it when it reaches this node
+                        project.log( "Unable to prefetch " + pomArtifact + ": " + e.getMessage(), Project.MSG_DEBUG );
+                    }
+                    catch ( ArtifactNotFoundException e )
+                    {
+                        project.log( "Unable to prefetch " + pomArtifact + ": " + e.getMessage(), Project.MSG_DEBUG );
+                    }
+                }
+            }, null );
+
+            if ( prefetches.putIfAbsent( getKey( pomArtifact.getGroupId(), pomArtifact.getArtifactId(), version ),
+                                         task ) == null )
+            {
+                executor.execute( task );
+            }
+        }
+    }
+
+    private void awaitPrefetch( Artifact artifact )
+    {
+        if ( artifact.getVersion() == null )
+        {
+            return;
+        }
+
+        Future<?> future = prefetches.get( getKey( artifact.getGroupId(), artifact.getArtifactId(),
+                                                   artifact.getVersion() ) );
+        if ( future == null )
+        {
+            return;
+        }
+
+        try
+        {
+            future.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch ( ExecutionException e )
+        {
+            // the delegate will retry and report the failure
+        }
+    }
+
+    private static String getKey( String groupId, String artifactId, String version )
+    {
+        return groupId + ":" + artifactId + ":" + version;
+    }
+}
@@ -0,0 +1,233 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.maven.artifact.ant.util.KeepAliveHttpWagon;
+import org.apache.maven.wagon.Wagon;
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.codehaus.classworlds.ClassWorld;
+import org.codehaus.classworlds.DuplicateRealmException;
+import org.codehaus.plexus.PlexusContainer;
+import org.codehaus.plexus.PlexusContainerException;
+import org.codehaus.plexus.component.repository.ComponentDescriptor;
+import org.codehaus.plexus.component.repository.exception.ComponentRepositoryException;
+import org.codehaus.plexus.embed.Embedder;
+
+/**
+ * JVM wide registry of the Plexus containers shared by the Ant projects of a build, to avoid starting a new
+ * container in each project created by <code>&lt;ant&gt;</code> or <code>&lt;subant&gt;</code>.
+ * <p>
+ * Since a wagon provider installed in a container is visible to every user of the container, containers are
+ * registered by the set of jars added to them: a project installing a provider switches to the container with
+ * these jars, and the projects that didn't install it keep using a container without them.
+ * The shared containers are disposed when the {@link BuildSession session} of the build ends.
+ * </p>
+ *
+ * @since 2.1.4
+ */
+class PlexusContainerRegistry
+{
+    /**
+     * The shared containers, by the set of paths of the jars added to them.
+     */
+    private static final Map<Set<String>, PlexusContainer> CONTAINERS = new HashMap<Set<String>, PlexusContainer>();
+
+    /**
+     * The paths of the jars added to each shared container.
+     */
+    private static final Map<PlexusContainer, Set<String>> JAR_RESOURCES =
+        new IdentityHashMap<PlexusContainer, Set<String>>();
+
+    static
+    {
+        BuildSession.addListener( new BuildSession.Listener()
+        {
+            public void sessionEnded( Project project )
+            {
+                int count = disposeAll();
+                if ( count > 0 )
+                {
+                    project.log( "Disposed " + count + " shared Plexus containers", Project.MSG_VERBOSE );
+                }
+            }
+        } );
+    }
+
+    private PlexusContainerRegistry()
+    {
+        // no instances
+    }
+
+    /**
+     * Start a new container.
+     *
+     * @param classLoader the class loader of the container core realm
+     * @return the container
+     */
+    static PlexusContainer createContainer( ClassLoader classLoader )
+    {
+        try
+        {
+            ClassWorld classWorld = new ClassWorld();
+
+            classWorld.newRealm( "plexus.core", classLoader );
+
+            Embedder embedder = new Embedder();
+
+            embedder.start( classWorld );
+
+            PlexusContainer container = embedder.getContainer();
+            addHttpWagons( container );
+            return container;
+        }
+        catch ( PlexusContainerException e )
+        {
+            throw new BuildException( "Unable to start embedder", e );
+        }
+        catch ( DuplicateRealmException e )
+        {
+            throw new BuildException( "Unable to create embedder ClassRealm", e );
+        }
+    }
+
+    /**
+     * Replace the lightweight HTTP wagons by the wagon keeping the connections alive. A wagon provider installed later
+     * replaces it in turn.
+     */
+    private static void addHttpWagons( PlexusContainer container )
+    {
+        for ( String protocol : new String[] { "http", "https" } )
+        {
+            ComponentDescriptor descriptor = new ComponentDescriptor();
+            descriptor.setRole( Wagon.ROLE );
+            descriptor.setRoleHint( protocol );
+            descriptor.setImplementation( KeepAliveHttpWagon.class.getName() );
+            descriptor.setInstantiationStrategy( "per-lookup" );
+            try
+            {
+                container.addComponentDescriptor( descriptor );
+            }
+            catch ( ComponentRepositoryException e )
+            {
+                throw new BuildException( "Unable to register the " + protocol + " wagon: " + e.getMessage(), e );
+            }
+        }
+    }
+
+    /**
+     * Get the shared container without added jars, starting it if needed.
+     *
+     * @param project the project which will use the container, joining the session of the build
+     * @param classLoader the class loader of the container core realm
+     * @return the container
+     */
+    static PlexusContainer getContainer( Project project, ClassLoader classLoader )
+    {
+        return getContainer( project, classLoader, Collections.<String>emptySet() );
+    }
+
+    /**
+     * Get the shared container having the jars of the given container plus the given jars, starting it if needed.
+     *
+     * @param project the project which will use the container, joining the session of the build
+     * @param classLoader the class loader of the container core realm
+     * @param current the container currently used by the project
+     * @param jars the jars to add
+     * @return the container
+     * @throws PlexusContainerException if a jar can't be added
+     */
+    static synchronized PlexusContainer addJarResources( Project project, ClassLoader classLoader,
+                                                         PlexusContainer current, Iterable<File> jars )
+        throws PlexusContainerException
+    {
+        Set<String> jarResources = new TreeSet<String>();
+        Set<String> currentJarResources = JAR_RESOURCES.get( current );
+        if ( currentJarResources != null )
+        {
+            jarResources.addAll( currentJarResources );
+        }
+        for ( File jar : jars )
+        {
+            jarResources.add( jar.getAbsolutePath() );
+        }
+
+        return getContainer( project, classLoader, jarResources );
+    }
+
+    private static synchronized PlexusContainer getContainer( Project project, ClassLoader classLoader,
+                                                              Set<String> jarResources )
+        throws BuildException
+    {
+        PlexusContainer container = CONTAINERS.get( jarResources );
+        if ( container == null )
+        {
+            container = createContainer( classLoader );
+            try
+            {
+                for ( String jar : jarResources )
+                {
+                    container.addJarResource( new File( jar ) );
+                }
+            }
+            catch ( PlexusContainerException e )
+            {
+                container.dispose();
+                throw new BuildException( "Unable to add jar to the container: " + e.getMessage(), e );
+            }
+
+            Set<String> key = Collections.unmodifiableSet( new TreeSet<String>( jarResources ) );
+            CONTAINERS.put( key, container );
+            JAR_RESOURCES.put( container, key );
+
+            project.log( "Started shared Plexus container with " + jarResources.size() + " added jars",
+                         Project.MSG_VERBOSE );
+        }
+
+        BuildSession.join( project );
+
+        return container;
+    }
+
+    /**
+     * Dispose all the shared containers.
+     *
+     * @return the number of disposed containers
+     */
+    static synchronized int disposeAll()
+    {
+        int count = CONTAINERS.size();
+        for ( PlexusContainer container : CONTAINERS.values() )
+        {
+            container.dispose();
+        }
+        CONTAINERS.clear();
+        JAR_RESOURCES.clear();
+        return count;
+    }
+}
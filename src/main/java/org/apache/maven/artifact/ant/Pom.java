@@ -37,6 +37,7 @@ import org.apache.maven.model.Parent;
 import org.apache.maven.model.Reporting;
 import org.apache.maven.model.Repository;
 import org.apache.maven.model.Scm;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.apache.maven.profiles.ProfileManager;
 import org.apache.maven.project.DefaultProjectBuilderConfiguration;
 import org.apache.maven.project.MavenProject;
@@ -50,9 +51,13 @@ import org.apache.maven.project.interpolation.ModelInterpolationException;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.PropertyHelper;
-import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReaderFactory;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.Iterator;
@@ -98,10 +103,17 @@ public class Pom
 
     private boolean inheritAllProperties = true;
 
+    private boolean initialised;
+
+    /**
+     * Whether the maven project is only initialised when first used.
+     */
+    private boolean lazy;
+
     /**
-     * The property intercepter.
+     * The model read from the file of a lazy pom, until the maven project is initialised.
      */
-    private final POMPropertyHelper helper = new POMPropertyHelper( this );
+    private Model pendingModel;
 
     public String getRefid()
     {
@@ -202,15 +214,14 @@ public class Pom
 
     public void initialiseMavenProject( MavenProjectBuilder builder, ArtifactRepository localRepository )
     {
+        pendingModel = null;
         if ( file != null )
         {
             addAntRepositoriesToProfileManager();
             ProjectBuilderConfiguration builderConfig = this.createProjectBuilderConfig( localRepository );
             try
             {
-                mavenProject = builder.build( file, builderConfig );
-
-                builder.calculateConcreteState( mavenProject, builderConfig, false );
+                mavenProject = buildMavenProject( builder, localRepository, builderConfig );
             }
             catch ( ProjectBuildingException pbe )
             {
@@ -244,29 +255,132 @@ public class Pom
             String parentGroupId = mavenProject.getModel().getParent().getGroupId();
             String parentArtifactId = mavenProject.getModel().getParent().getArtifactId();
             String parentVersion = mavenProject.getModel().getParent().getVersion();
-            Iterator i = getAntReactorPoms().iterator();
-            while ( i.hasNext() )
+            Pom pom = PomIndex.getInstance( getProject() ).get( parentGroupId, parentArtifactId, parentVersion );
+            if ( pom != null )
             {
-                Pom pom = (Pom)i.next();
-                if ( StringUtils.equals( parentGroupId, pom.getGroupId() )
-                        && StringUtils.equals( parentArtifactId, pom.getArtifactId() )
-                        && StringUtils.equals( parentVersion, pom.getVersion() ) )
+                if ( !pom.isInitialised() )
                 {
                     pom.initialiseMavenProject( builder, localRepository );
-                    mavenProject.setParent( pom.getMavenProject() );
-                    ModelInheritanceAssembler modelInheritanceAssembler =
-                            (ModelInheritanceAssembler) lookup( ModelInheritanceAssembler. ROLE );
-                    modelInheritanceAssembler.assembleModelInheritance( mavenProject.getModel(), pom.getModel() );
-                    break;
                 }
+                mavenProject.setParent( pom.getMavenProject() );
+                ModelInheritanceAssembler modelInheritanceAssembler =
+                        (ModelInheritanceAssembler) lookup( ModelInheritanceAssembler. ROLE );
+                modelInheritanceAssembler.assembleModelInheritance( mavenProject.getModel(), pom.getModel() );
             }
         }
         ModelDefaultsInjector modelDefaultsInjector = (ModelDefaultsInjector) lookup( ModelDefaultsInjector.ROLE );
         modelDefaultsInjector.injectDefaults(mavenProject.getModel());
+        initialised = true;
+    }
+
+    /**
+     * Whether the maven project of this pom has been initialised, so that a parent pom found in the Ant reactor is
+     * initialised once and then shared by its children.
+     */
+    boolean isInitialised()
+    {
+        return initialised;
+    }
+
+    /**
+     * The model read from the file of a lazy pom which is not initialised yet.
+     *
+     * @return the model, or <code>null</code> if the pom is not waiting for its lazy initialisation
+     */
+    Model getPendingModel()
+    {
+        return pendingModel;
+    }
+
+    /**
+     * Build the project from the POM file, or get a copy of the project already built from the same file with the
+     * same configuration.
+     */
+    private MavenProject buildMavenProject( MavenProjectBuilder builder, ArtifactRepository localRepository,
+                                            ProjectBuilderConfiguration builderConfig )
+        throws ProjectBuildingException, ModelInterpolationException
+    {
+        String key = getCacheKey( localRepository, builderConfig );
+        Properties properties = builderConfig.getExecutionProperties();
+        if ( key != null )
+        {
+            MavenProject cached = MavenProjectCache.get( key, getSettings(), properties );
+            if ( cached != null )
+            {
+                log( "Using cached project for POM " + file, Project.MSG_VERBOSE );
+                return cached;
+            }
+        }
+
+        MavenProject project = builder.build( file, builderConfig );
+
+        builder.calculateConcreteState( project, builderConfig, false );
+
+        if ( key != null )
+        {
+            try
+            {
+                MavenProjectCache.put( key, project, getSettings(), properties );
+                return MavenProjectCache.copy( project );
+            }
+            catch ( IOException e )
+            {
+                log( "Unable to cache project for POM " + file + ": " + e.getMessage(), Project.MSG_VERBOSE );
+            }
+        }
+        return project;
+    }
+
+    /**
+     * Compute the key of the project built from the POM file: the file and its content, the local repository, the
+     * profiles and the repositories defined in Ant.
+     *
+     * @return the key, or <code>null</code> if the POM file can't be read
+     */
+    private String getCacheKey( ArtifactRepository localRepository, ProjectBuilderConfiguration builderConfig )
+    {
+        ResolutionCacheKey key = new ResolutionCacheKey();
+        try
+        {
+            key.add( "file", file.getCanonicalPath() );
+            key.addFile( "content", file );
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+
+        key.add( "localRepository", localRepository.getBasedir() );
+        key.add( "inheritAllProperties", Boolean.valueOf( inheritAllProperties ) );
+
+        ProfileManager profileManager = builderConfig.getGlobalProfileManager();
+        for ( Object id : profileManager.getExplicitlyActivatedIds() )
+        {
+            key.add( "activeProfile", id );
+        }
+        for ( Object id : profileManager.getExplicitlyDeactivatedIds() )
+        {
+            key.add( "inactiveProfile", id );
+        }
+
+        List<RemoteRepository> remoteRepositories = getRemoteRepositories();
+        if ( remoteRepositories != null )
+        {
+            for ( RemoteRepository repository : remoteRepositories )
+            {
+                key.add( "repository", repository.getId() + "|" + repository.getUrl() );
+            }
+        }
+
+        return key.compute();
     }
 
     protected MavenProject getMavenProject()
     {
+        if ( pendingModel != null )
+        {
+            initialiseLazily();
+        }
         if ( mavenProject == null )
         {
             mavenProject = createMinimalProject( createLocalArtifactRepository() );
@@ -409,18 +523,29 @@ public class Pom
      */
     protected void doExecute()
     {
-        if ( getId() == null )
+        if ( antId == null )
         {
             throw new BuildException( "id required for pom task" );
         }
-        ArtifactRepository localRepo = createLocalArtifactRepository();
-        MavenProjectBuilder projectBuilder = (MavenProjectBuilder) lookup( MavenProjectBuilder.ROLE );
-        initialiseMavenProject( projectBuilder, localRepo );
-
         Project antProject = getProject();
 
-        // Add a reference to this task/type
-        antProject.addReference( antId, this );
+        pendingModel = lazy ? readModel( file ) : null;
+        if ( pendingModel != null )
+        {
+            // register the pom in the reactor with the coordinates read from the file, and build it on first use
+            antProject.addReference( antId, this );
+            PomIndex.getInstance( antProject ).add( this );
+        }
+        else
+        {
+            ArtifactRepository localRepo = createLocalArtifactRepository();
+            MavenProjectBuilder projectBuilder = (MavenProjectBuilder) lookup( MavenProjectBuilder.ROLE );
+            initialiseMavenProject( projectBuilder, localRepo );
+
+            // Add a reference to this task/type
+            antProject.addReference( antId, this );
+            PomIndex.getInstance( antProject ).add( this );
+        }
 
         // Register the property intercepter or delegate
         PropertyHelper phelper = PropertyHelper.getPropertyHelper( antProject );
@@ -432,12 +557,76 @@ public class Pom
         catch ( LinkageError e )
         {
             // fallback to 1.6 - 1.7.1 intercepter chaining
-            helper.setNext( phelper.getNext() );
-            helper.setProject( antProject );
-            phelper.setNext( helper );
+            POMPropertyHelper.register( this, phelper );
+        }
+    }
+
+    private synchronized void initialiseLazily()
+    {
+        if ( pendingModel != null )
+        {
+            log( "Initialising POM " + file, Project.MSG_VERBOSE );
+            MavenProjectBuilder projectBuilder = (MavenProjectBuilder) lookup( MavenProjectBuilder.ROLE );
+            initialiseMavenProject( projectBuilder, createLocalArtifactRepository() );
         }
     }
 
+    /**
+     * Read the model of a POM file without building the project, to register a lazy pom in the reactor.
+     *
+     * @param file the POM file, which may be <code>null</code>
+     * @return the model, or <code>null</code> if the pom must be initialised right away: it is not read from a file,
+     * the file can't be read or its coordinates contain expressions
+     */
+    static Model readModel( File file )
+    {
+        if ( file == null )
+        {
+            return null;
+        }
+
+        Model model;
+        Reader reader = null;
+        try
+        {
+            reader = ReaderFactory.newXmlReader( file );
+            model = new MavenXpp3Reader().read( reader, false );
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+        catch ( XmlPullParserException e )
+        {
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+
+        String coordinates = getGroupId( model ) + ":" + model.getArtifactId() + ":" + getVersion( model );
+        return coordinates.indexOf( "${" ) < 0 ? model : null;
+    }
+
+    static String getGroupId( Model model )
+    {
+        if ( model.getGroupId() == null && model.getParent() != null )
+        {
+            return model.getParent().getGroupId();
+        }
+        return model.getGroupId();
+    }
+
+    static String getVersion( Model model )
+    {
+        if ( model.getVersion() == null && model.getParent() != null )
+        {
+            return model.getParent().getVersion();
+        }
+        return model.getVersion();
+    }
+
     /**
      * The repositories defined in the ant "pom" task need to be added manually to the profile manager. Otherwise they
      * won't be available when resolving the parent pom. MANTTASKS-87
@@ -499,8 +688,9 @@ public class Pom
         ProjectBuilderConfiguration builderConfig = new DefaultProjectBuilderConfiguration();
         builderConfig.setLocalRepository( localArtifactRepository );
         builderConfig.setGlobalProfileManager( this.getActivatedProfiles() );
-        builderConfig.setUserProperties( getAntProjectProperties() );
-        builderConfig.setExecutionProperties( getAntProjectProperties() );
+        Properties properties = new AntProjectProperties( getProject(), !isInheritAllProperties() );
+        builderConfig.setUserProperties( properties );
+        builderConfig.setExecutionProperties( properties );
 
         return builderConfig;
     }
@@ -550,6 +740,24 @@ public class Pom
         return inheritAllProperties;
     }
 
+    /**
+     * If set to true, the POM file is only read when the pom is first used: the reference and the properties are
+     * available right away, but the project is built, with the Ant properties of that time, when one of its values is
+     * read or a task uses it.
+     *
+     * @param lazy
+     * @since 2.1.4
+     */
+    public void setLazy( boolean lazy )
+    {
+        this.lazy = lazy;
+    }
+
+    public boolean isLazy()
+    {
+        return lazy;
+    }
+
     public Model getModel()
     {
         return getMavenProject().getModel();
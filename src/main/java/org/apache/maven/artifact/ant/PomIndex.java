@@ -0,0 +1,110 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.maven.model.Model;
+import org.apache.tools.ant.Project;
+
+/**
+ * Index of the POMs registered in an Ant project by groupId:artifactId:version, used to find the parent of a POM
+ * in the Ant reactor without scanning all the references of the project.
+ * <p>
+ * The index is stored as a reference of the project it indexes. A project created by <code>&lt;ant&gt;</code> with
+ * inherited references gets its own index, built once from the POMs it inherited.
+ * </p>
+ *
+ * @since 2.1.4
+ */
+class PomIndex
+{
+    private static final String REFERENCE = PomIndex.class.getName();
+
+    private final Project project;
+
+    private final Map<String, Pom> poms = new HashMap<String, Pom>();
+
+    private PomIndex( Project project )
+    {
+        this.project = project;
+    }
+
+    /**
+     * Get the index of the POMs of a project.
+     *
+     * @param project the Ant project
+     * @return the index
+     */
+    static synchronized PomIndex getInstance( Project project )
+    {
+        Object reference = project.getReference( REFERENCE );
+        if ( reference instanceof PomIndex && ( (PomIndex) reference ).project == project )
+        {
+            return (PomIndex) reference;
+        }
+
+        PomIndex index = new PomIndex( project );
+        for ( Object o : project.getReferences().values() )
+        {
+            if ( o instanceof Pom && ( ( (Pom) o ).isInitialised() || ( (Pom) o ).getPendingModel() != null ) )
+            {
+                index.add( (Pom) o );
+            }
+        }
+        project.addReference( REFERENCE, index );
+        return index;
+    }
+
+    /**
+     * Add an initialized or lazy POM to the index, replacing any POM with the same coordinates.
+     *
+     * @param pom the POM
+     */
+    synchronized void add( Pom pom )
+    {
+        Model model = pom.getPendingModel();
+        if ( model != null )
+        {
+            // a lazy POM is indexed by the coordinates read from its file, without initializing it
+            poms.put( getKey( Pom.getGroupId( model ), model.getArtifactId(), Pom.getVersion( model ) ), pom );
+        }
+        else
+        {
+            poms.put( getKey( pom.getGroupId(), pom.getArtifactId(), pom.getVersion() ), pom );
+        }
+    }
+
+    /**
+     * Find a POM by its coordinates.
+     *
+     * @return the POM, or <code>null</code> if no such POM is registered in the project
+     */
+    synchronized Pom get( String groupId, String artifactId, String version )
+    {
+        return poms.get( getKey( groupId, artifactId, version ) );
+    }
+
+    private static String getKey( String groupId, String artifactId, String version )
+    {
+        return groupId + ":" + artifactId + ":" + version;
+    }
+}
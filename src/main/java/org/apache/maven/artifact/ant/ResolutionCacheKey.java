@@ -0,0 +1,133 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * SHA-1 digest of the inputs of a dependency resolution or of a project build, used as a cache key.
+ * Each value is added with its name, so that two different sets of inputs never produce the same sequence of bytes.
+ *
+ * @since 2.1.4
+ */
+class ResolutionCacheKey
+{
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final MessageDigest digest;
+
+    ResolutionCacheKey()
+    {
+        try
+        {
+            digest = MessageDigest.getInstance( "SHA-1" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( "SHA-1 is not available: " + e.getMessage() );
+        }
+    }
+
+    /**
+     * Add a named value to the key.
+     *
+     * @param name the name of the value
+     * @param value the value, which may be <code>null</code>
+     */
+    void add( String name, Object value )
+    {
+        update( name );
+        update( value == null ? "\u0000" : "=" + value );
+    }
+
+    /**
+     * Add the content of a file to the key.
+     *
+     * @param name the name of the value
+     * @param file the file, which may be <code>null</code> or missing
+     * @throws IOException if the file can't be read
+     */
+    void addFile( String name, File file )
+        throws IOException
+    {
+        if ( file == null || !file.isFile() )
+        {
+            add( name, null );
+            return;
+        }
+
+        update( name );
+        update( "#" + file.length() + "#" );
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( file );
+            byte[] buffer = new byte[8192];
+            int n;
+            while ( ( n = in.read( buffer ) ) != -1 )
+            {
+                digest.update( buffer, 0, n );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    private void update( String value )
+    {
+        try
+        {
+            digest.update( value.getBytes( "UTF-8" ) );
+            digest.update( (byte) '\n' );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            // UTF-8 is always supported
+            throw new IllegalStateException( e.getMessage() );
+        }
+    }
+
+    /**
+     * Compute the key. The key can't be used any more once computed.
+     *
+     * @return the key, as 40 hexadecimal digits
+     */
+    String compute()
+    {
+        byte[] bytes = digest.digest();
+        char[] hex = new char[bytes.length * 2];
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            hex[i * 2] = HEX_DIGITS[( bytes[i] >> 4 ) & 0x0f];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+        }
+        return new String( hex );
+    }
+}
@@ -0,0 +1,475 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ant.util.AntBuildWriter;
+import org.apache.maven.artifact.metadata.ArtifactMetadataRetrievalException;
+import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
+import org.apache.maven.artifact.metadata.ResolutionGroup;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.tools.ant.Project;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Resolution listener recording, for each node of the dependency graph, the time spent fetching its metadata,
+ * selecting its version from a range, handling its conflicts and downloading its artifact. The nodes are identified
+ * by their groupId, artifactId, type and classifier, so the versions of a node in conflict are counted together.
+ * <p>
+ * The metadata and range times are measured by the {@link #profile(ArtifactMetadataSource) profiled metadata source},
+ * the conflict time from the test of a node to its inclusion or omission, and the download time by the
+ * {@link AntDownloadMonitor download monitor}, from the request of the artifact file to the end of its transfer.
+ * </p>
+ *
+ * @since 2.1.4
+ */
+class ResolutionProfiler
+    extends AntResolutionListener
+{
+    static final String METADATA = "metadata";
+
+    static final String RANGE = "range";
+
+    static final String CONFLICT = "conflict";
+
+    static final String DOWNLOAD = "download";
+
+    private static final String[] CATEGORIES = { METADATA, RANGE, CONFLICT, DOWNLOAD };
+
+    /**
+     * The profilers of the resolutions in progress, by artifact file they expect to be downloaded, or by directory
+     * for the snapshots, which are downloaded to a file named after their timestamp.
+     */
+    private static final Map<File, ResolutionProfiler> DOWNLOADS = new HashMap<File, ResolutionProfiler>();
+
+    private final Project project;
+
+    private final ArtifactRepository localRepository;
+
+    private final long origin = System.nanoTime();
+
+    private final Map<String, Node> nodes = new LinkedHashMap<String, Node>();
+
+    private final List<Span> spans = new ArrayList<Span>();
+
+    /**
+     * The nodes of the artifact files, or snapshot directories, expected to be downloaded.
+     */
+    private final Map<File, String> files = new HashMap<File, String>();
+
+    /**
+     * The node being mediated by the collector, and the start of its mediation.
+     */
+    private String conflictNode;
+
+    private long conflictStart;
+
+    ResolutionProfiler( Project project, ArtifactRepository localRepository )
+    {
+        super( project );
+        this.project = project;
+        this.localRepository = localRepository;
+    }
+
+    /**
+     * Wrap the metadata source of the resolution, to measure the time spent fetching the metadata and the available
+     * versions of each node.
+     */
+    @SuppressWarnings( "rawtypes" ) // the wrapped Maven 2 interface takes raw Lists
+    ArtifactMetadataSource profile( final ArtifactMetadataSource source )
+    {
+        return new ArtifactMetadataSource()
+        {
+            public ResolutionGroup retrieve( Artifact artifact, ArtifactRepository localRepository,
+                                             List remoteRepositories )
+                throws ArtifactMetadataRetrievalException
+            {
+                long start = begin();
+                try
+                {
+                    return source.retrieve( artifact, localRepository, remoteRepositories );
+                }
+                finally
+                {
+                    record( artifact, METADATA, start, System.nanoTime() );
+                }
+            }
+
+            public Artifact retrieveRelocatedArtifact( Artifact artifact, ArtifactRepository localRepository,
+                                                       List remoteRepositories )
+                throws ArtifactMetadataRetrievalException
+            {
+                long start = begin();
+                try
+                {
+                    return source.retrieveRelocatedArtifact( artifact, localRepository, remoteRepositories );
+                }
+                finally
+                {
+                    record( artifact, METADATA, start, System.nanoTime() );
+                }
+            }
+
+            public List retrieveAvailableVersions( Artifact artifact, ArtifactRepository localRepository,
+                                                   List remoteRepositories )
+                throws ArtifactMetadataRetrievalException
+            {
+                long start = begin();
+                try
+                {
+                    return source.retrieveAvailableVersions( artifact, localRepository, remoteRepositories );
+                }
+                finally
+                {
+                    record( artifact, RANGE, start, System.nanoTime() );
+                }
+            }
+
+            private long begin()
+            {
+                endConflict();
+                return System.nanoTime();
+            }
+        };
+    }
+
+    public void testArtifact( Artifact node )
+    {
+        endConflict();
+        conflictNode = node.getDependencyConflictId();
+        conflictStart = System.nanoTime();
+        super.testArtifact( node );
+    }
+
+    public void startProcessChildren( Artifact artifact )
+    {
+        endConflict();
+        super.startProcessChildren( artifact );
+    }
+
+    public void endProcessChildren( Artifact artifact )
+    {
+        endConflict();
+        super.endProcessChildren( artifact );
+    }
+
+    public void includeArtifact( Artifact artifact )
+    {
+        endConflict();
+        Node node = getNode( artifact );
+        if ( artifact.getVersion() != null && !Artifact.SCOPE_SYSTEM.equals( artifact.getScope() ) )
+        {
+            File file = new File( localRepository.getBasedir(), localRepository.pathOf( artifact ) );
+            if ( artifact.isSnapshot() )
+            {
+                file = file.getParentFile();
+            }
+            synchronized ( this )
+            {
+                files.put( file, node.key );
+            }
+            synchronized ( DOWNLOADS )
+            {
+                DOWNLOADS.put( file, this );
+            }
+        }
+        super.includeArtifact( artifact );
+    }
+
+    private void endConflict()
+    {
+        if ( conflictNode != null )
+        {
+            record( conflictNode, null, CONFLICT, conflictStart, System.nanoTime() );
+            conflictNode = null;
+        }
+    }
+
+    /**
+     * Record the download of a file of the local repository, if it is the artifact of a node being resolved.
+     *
+     * @param file the downloaded file
+     * @param start the start of the download, from {@link System#nanoTime()}
+     * @param end the end of the download, from {@link System#nanoTime()}
+     */
+    static void downloaded( File file, long start, long end )
+    {
+        ResolutionProfiler profiler;
+        synchronized ( DOWNLOADS )
+        {
+            profiler = DOWNLOADS.get( file );
+            if ( profiler == null )
+            {
+                profiler = DOWNLOADS.get( file.getParentFile() );
+            }
+        }
+        if ( profiler != null )
+        {
+            profiler.record( file, start, end );
+        }
+    }
+
+    /**
+     * End the profiling: stop recording the downloads.
+     */
+    void finish()
+    {
+        endConflict();
+        List<File> expected;
+        synchronized ( this )
+        {
+            expected = new ArrayList<File>( files.keySet() );
+        }
+        synchronized ( DOWNLOADS )
+        {
+            for ( File file : expected )
+            {
+                if ( DOWNLOADS.get( file ) == this )
+                {
+                    DOWNLOADS.remove( file );
+                }
+            }
+        }
+    }
+
+    private synchronized Node getNode( Artifact artifact )
+    {
+        Node node = getNode( artifact.getDependencyConflictId() );
+        if ( artifact.getVersion() != null )
+        {
+            node.version = artifact.getVersion();
+        }
+        return node;
+    }
+
+    private synchronized Node getNode( String key )
+    {
+        Node node = nodes.get( key );
+        if ( node == null )
+        {
+            node = new Node( key );
+            nodes.put( key, node );
+        }
+        return node;
+    }
+
+    private void record( Artifact artifact, String category, long start, long end )
+    {
+        record( getNode( artifact ).key, null, category, start, end );
+    }
+
+    private synchronized void record( File file, long start, long end )
+    {
+        String key = files.get( file );
+        record( key != null ? key : files.get( file.getParentFile() ), file.getName(), DOWNLOAD, start, end );
+    }
+
+    private synchronized void record( String key, String name, String category, long start, long end )
+    {
+        if ( key == null )
+        {
+            return;
+        }
+        Node node = getNode( key );
+        node.add( category, end - start );
+        spans.add( new Span( node, name, category, Thread.currentThread(), start, end ) );
+    }
+
+    /**
+     * Log the slowest nodes of the resolution.
+     *
+     * @param top the number of nodes to log
+     */
+    synchronized void report( int top )
+    {
+        List<Node> slowest = new ArrayList<Node>( nodes.values() );
+        Collections.sort( slowest, new Comparator<Node>()
+        {
+            public int compare( Node n1, Node n2 )
+            {
+                long t1 = n1.getTotal();
+                long t2 = n2.getTotal();
+                return t1 > t2 ? -1 : ( t1 < t2 ? 1 : 0 );
+            }
+        } );
+
+        project.log( "Slowest dependencies to resolve:" );
+        for ( Node node : slowest.subList( 0, Math.min( top, slowest.size() ) ) )
+        {
+            StringBuffer line = new StringBuffer( "  " );
+            line.append( millis( node.getTotal() ) ).append( " ms " ).append( node );
+            for ( int i = 0; i < CATEGORIES.length; i++ )
+            {
+                line.append( i == 0 ? " (" : ", " ).append( CATEGORIES[i] ).append( ' ' );
+                line.append( millis( node.get( CATEGORIES[i] ) ) ).append( " ms" );
+            }
+            project.log( line.append( ')' ).toString() );
+        }
+    }
+
+    /**
+     * Write the recorded times in the Chrome trace event format, one complete event per metadata fetch, version
+     * selection, conflict mediation and download.
+     *
+     * @param file the trace file
+     * @throws IOException if the file can't be written
+     */
+    synchronized void writeTrace( File file )
+        throws IOException
+    {
+        if ( file.getParentFile() != null )
+        {
+            file.getParentFile().mkdirs();
+        }
+        Writer writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file ),
+                                                                    AntBuildWriter.DEFAULT_FILE_ENCODING ) );
+        try
+        {
+            writer.write( "{\n  \"displayTimeUnit\": \"ms\",\n  \"traceEvents\": [" );
+            for ( int i = 0; i < spans.size(); i++ )
+            {
+                Span span = spans.get( i );
+                writer.write( i > 0 ? ",\n" : "\n" );
+                writer.write( "    { \"name\": " + TransferMetrics.quote( span.getName() ) + ", \"cat\": "
+                    + TransferMetrics.quote( span.category ) + ", \"ph\": \"X\", \"ts\": "
+                    + micros( span.start - origin ) + ", \"dur\": " + micros( span.end - span.start )
+                    + ", \"pid\": 1, \"tid\": " + span.thread + ", \"args\": { \"node\": "
+                    + TransferMetrics.quote( span.node.toString() ) + " } }" );
+            }
+            writer.write( "\n  ]\n}\n" );
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+    }
+
+    private static long millis( long nanos )
+    {
+        return nanos / 1000000;
+    }
+
+    private static long micros( long nanos )
+    {
+        return nanos / 1000;
+    }
+
+    /**
+     * A node of the dependency graph, with the time spent in each category.
+     */
+    private static class Node
+    {
+        private final String key;
+
+        private String version;
+
+        private final long[] times = new long[CATEGORIES.length];
+
+        Node( String key )
+        {
+            this.key = key;
+        }
+
+        void add( String category, long time )
+        {
+            for ( int i = 0; i < CATEGORIES.length; i++ )
+            {
+                if ( CATEGORIES[i].equals( category ) )
+                {
+                    times[i] += time;
+                }
+            }
+        }
+
+        long get( String category )
+        {
+            for ( int i = 0; i < CATEGORIES.length; i++ )
+            {
+                if ( CATEGORIES[i].equals( category ) )
+                {
+                    return times[i];
+                }
+            }
+            return 0;
+        }
+
+        long getTotal()
+        {
+            long total = 0;
+            for ( long time : times )
+            {
+                total += time;
+            }
+            return total;
+        }
+
+        public String toString()
+        {
+            return version == null ? key : key + ":" + version;
+        }
+    }
+
+    /**
+     * A timed operation on a node.
+     */
+    private static class Span
+    {
+        private final Node node;
+
+        private final String name;
+
+        private final String category;
+
+        private final long thread;
+
+        private final long start;
+
+        private final long end;
+
+        Span( Node node, String name, String category, Thread thread, long start, long end )
+        {
+            this.node = node;
+            this.name = name;
+            this.category = category;
+            this.thread = thread.getId();
+            this.start = start;
+            this.end = end;
+        }
+
+        String getName()
+        {
+            return name == null ? category + " " + node : name;
+        }
+    }
+}
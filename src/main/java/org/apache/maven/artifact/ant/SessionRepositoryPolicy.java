@@ -0,0 +1,67 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Date;
+
+import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
+import org.apache.tools.ant.Project;
+
+/**
+ * Repository policy checking a remote repository for updates at most once per {@link BuildSession build}, whatever
+ * its update policy.
+ * <p>
+ * Maven touches the local copy of the metadata of a remote repository, <code>maven-metadata-&lt;id&gt;.xml</code>,
+ * each time it checks the repository for updates. A local copy modified since the build started was therefore
+ * checked by a previous task of the build, for the same repository and coordinates, and is not checked again.
+ * Once the session of the policy has ended, for example for a repository kept in a cache, the update policy applies
+ * as is.
+ * </p>
+ *
+ * @since 2.1.4
+ */
+class SessionRepositoryPolicy
+    extends ArtifactRepositoryPolicy
+{
+    private final long session;
+
+    private final long start;
+
+    /**
+     * Create a policy for a task of a build.
+     *
+     * @param project the project of the task
+     */
+    SessionRepositoryPolicy( Project project, boolean enabled, String updatePolicy, String checksumPolicy )
+    {
+        super( enabled, updatePolicy, checksumPolicy );
+        this.session = BuildSession.getSession( project );
+        this.start = BuildSession.getStart( project );
+    }
+
+    public boolean checkOutOfDate( Date lastModified )
+    {
+        if ( !BuildSession.isActive( session ) )
+        {
+            return super.checkOutOfDate( lastModified );
+        }
+        return lastModified.getTime() < start && super.checkOutOfDate( lastModified );
+    }
+}
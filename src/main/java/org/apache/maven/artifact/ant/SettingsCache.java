@@ -0,0 +1,160 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.maven.settings.Settings;
+
+/**
+ * JVM wide cache of the merged user and global settings, so that the settings files are read, interpolated and
+ * merged once per build instead of once per task execution.
+ * <p>
+ * An entry is keyed by the path, size and modification time of both settings files, and by the environment and
+ * system properties used while reading them: editing a settings file or changing the environment gives a new entry.
+ * The cached settings are shared by all the tasks and must not be modified.
+ * </p>
+ *
+ * @since 2.1.4
+ */
+class SettingsCache
+{
+    private static final int MAX_ENTRIES = 16;
+
+    private static final Map<Key, Settings> CACHE = new LinkedHashMap<Key, Settings>( MAX_ENTRIES, 0.75f, true )
+    {
+        protected boolean removeEldestEntry( Map.Entry<Key, Settings> eldest )
+        {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private SettingsCache()
+    {
+        // no instances
+    }
+
+    static synchronized Settings get( Key key )
+    {
+        return CACHE.get( key );
+    }
+
+    static synchronized void put( Key key, Settings settings )
+    {
+        CACHE.put( key, settings );
+    }
+
+    /**
+     * The identity of the inputs of the settings: the files and the environment they are interpolated with.
+     */
+    static final class Key
+    {
+        private final FileIdentity userSettingsFile;
+
+        private final FileIdentity globalSettingsFile;
+
+        private final String userHome;
+
+        private final Map<String, String> environment;
+
+        Key( File userSettingsFile, File globalSettingsFile )
+        {
+            this.userSettingsFile = FileIdentity.of( userSettingsFile );
+            this.globalSettingsFile = FileIdentity.of( globalSettingsFile );
+            this.userHome = System.getProperty( "user.home" );
+            this.environment = System.getenv();
+        }
+
+        public boolean equals( Object o )
+        {
+            if ( this == o )
+            {
+                return true;
+            }
+            if ( !( o instanceof Key ) )
+            {
+                return false;
+            }
+            Key other = (Key) o;
+            return equal( userSettingsFile, other.userSettingsFile )
+                && equal( globalSettingsFile, other.globalSettingsFile ) && equal( userHome, other.userHome )
+                && environment.equals( other.environment );
+        }
+
+        public int hashCode()
+        {
+            int result = hashCode( userSettingsFile );
+            result = 31 * result + hashCode( globalSettingsFile );
+            result = 31 * result + hashCode( userHome );
+            return 31 * result + environment.hashCode();
+        }
+
+        private static boolean equal( Object a, Object b )
+        {
+            return ( a == null ) ? b == null : a.equals( b );
+        }
+
+        private static int hashCode( Object o )
+        {
+            return ( o == null ) ? 0 : o.hashCode();
+        }
+    }
+
+    /**
+     * The path, size and modification time of a file.
+     */
+    private static final class FileIdentity
+    {
+        private final String path;
+
+        private final long length;
+
+        private final long lastModified;
+
+        private FileIdentity( File file )
+        {
+            this.path = file.getAbsolutePath();
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+        }
+
+        static FileIdentity of( File file )
+        {
+            return ( file == null ) ? null : new FileIdentity( file );
+        }
+
+        public boolean equals( Object o )
+        {
+            if ( !( o instanceof FileIdentity ) )
+            {
+                return false;
+            }
+            FileIdentity other = (FileIdentity) o;
+            return path.equals( other.path ) && length == other.length && lastModified == other.lastModified;
+        }
+
+        public int hashCode()
+        {
+            return path.hashCode() ^ (int) length ^ (int) lastModified;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.maven.artifact.ant.util.AntBuildWriter;
+import org.apache.tools.ant.Project;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Transfer metrics of a {@link BuildSession build}, per remote repository and request type: number of requests and
+ * errors, bytes, time to first byte, throughput and a histogram of the latencies. They are logged when the build
+ * finishes, and written as JSON to the file of the <code>maven.ant.tasks.transferMetricsFile</code> property if set.
+ * <p>
+ * The time to first byte is the time from the request to the start of the transfer, and the latency the time from
+ * the request to the end of the transfer.
+ * </p>
+ *
+ * @since 2.1.4
+ */
+class TransferMetrics
+{
+    static final String FILE_PROPERTY = "maven.ant.tasks.transferMetricsFile";
+
+    static final String GET = "GET";
+
+    static final String PUT = "PUT";
+
+    /**
+     * The upper bounds of the latency histogram buckets, in milliseconds. The last bucket has no upper bound.
+     */
+    private static final long[] BUCKETS = { 10, 50, 100, 250, 500, 1000, 2500, 5000 };
+
+    private static final int KILO = 1024;
+
+    private static final Map<String, Stats> STATS = new TreeMap<String, Stats>();
+
+    static
+    {
+        BuildSession.addListener( new BuildSession.Listener()
+        {
+            public void sessionEnded( Project project )
+            {
+                report( project );
+            }
+        } );
+    }
+
+    private TransferMetrics()
+    {
+        // no instances
+    }
+
+    /**
+     * Record a transfer.
+     *
+     * @param repositoryId the id of the remote repository
+     * @param url the URL of the remote repository
+     * @param requestType {@link #GET} or {@link #PUT}
+     * @param bytes the bytes transferred
+     * @param firstByte the time to first byte in nanoseconds, or -1 if the transfer didn't start
+     * @param latency the time from the request to the end of the transfer, in nanoseconds
+     * @param failed whether the transfer failed
+     */
+    static void record( String repositoryId, String url, String requestType, long bytes, long firstByte,
+                        long latency, boolean failed )
+    {
+        String key = repositoryId + ' ' + requestType;
+        synchronized ( STATS )
+        {
+            Stats stats = STATS.get( key );
+            if ( stats == null )
+            {
+                stats = new Stats( repositoryId, url, requestType );
+                STATS.put( key, stats );
+            }
+            stats.add( bytes, firstByte, latency, failed );
+        }
+    }
+
+    /**
+     * Log the metrics of the build, write them to the file of the {@link #FILE_PROPERTY} property if set, and clear
+     * them for the next build.
+     *
+     * @param project the top level project of the build
+     */
+    static void report( Project project )
+    {
+        List<Stats> stats;
+        synchronized ( STATS )
+        {
+            stats = new ArrayList<Stats>( STATS.values() );
+            STATS.clear();
+        }
+        if ( stats.isEmpty() )
+        {
+            return;
+        }
+
+        for ( Stats s : stats )
+        {
+            project.log( "Transfers " + s );
+        }
+
+        String fileName = project.getProperty( FILE_PROPERTY );
+        if ( fileName != null )
+        {
+            File file = project.resolveFile( fileName );
+            try
+            {
+                writeJson( file, stats );
+            }
+            catch ( IOException e )
+            {
+                project.log( "Unable to write transfer metrics to " + file + ": " + e.getMessage(),
+                             Project.MSG_WARN );
+            }
+        }
+    }
+
+    private static void writeJson( File file, List<Stats> stats )
+        throws IOException
+    {
+        if ( file.getParentFile() != null )
+        {
+            file.getParentFile().mkdirs();
+        }
+        Writer writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file ),
+                                                                    AntBuildWriter.DEFAULT_FILE_ENCODING ) );
+        try
+        {
+            writer.write( "{\n  \"transfers\": [" );
+            for ( int i = 0; i < stats.size(); i++ )
+            {
+                writer.write( i > 0 ? ",\n" : "\n" );
+                stats.get( i ).writeJson( writer );
+            }
+            writer.write( "\n  ]\n}\n" );
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+    }
+
+    static String quote( String s )
+    {
+        StringBuffer buffer = new StringBuffer( "\"" );
+        for ( int i = 0; s != null && i < s.length(); i++ )
+        {
+            char c = s.charAt( i );
+            if ( c == '"' || c == '\\' )
+            {
+                buffer.append( '\\' ).append( c );
+            }
+            else if ( c < ' ' )
+            {
+                String hex = Integer.toHexString( c );
+                buffer.append( "\\u" ).append( "0000".substring( hex.length() ) ).append( hex );
+            }
+            else
+            {
+                buffer.append( c );
+            }
+        }
+        return buffer.append( '"' ).toString();
+    }
+
+    private static long millis( long nanos )
+    {
+        return nanos / 1000000;
+    }
+
+    /**
+     * The metrics of a request type on a remote repository.
+     */
+    private static class Stats
+    {
+        private final String repositoryId;
+
+        private final String url;
+
+        private final String requestType;
+
+        private int requests;
+
+        private int errors;
+
+        private long bytes;
+
+        private long latency;
+
+        private int started;
+
+        private long firstByte;
+
+        private long maxFirstByte;
+
+        private final int[] histogram = new int[BUCKETS.length + 1];
+
+        Stats( String repositoryId, String url, String requestType )
+        {
+            this.repositoryId = repositoryId;
+            this.url = url;
+            this.requestType = requestType;
+        }
+
+        void add( long bytes, long firstByte, long latency, boolean failed )
+        {
+            requests++;
+            if ( failed )
+            {
+                errors++;
+            }
+            this.bytes += bytes;
+            this.latency += latency;
+            if ( firstByte >= 0 )
+            {
+                started++;
+                this.firstByte += firstByte;
+                maxFirstByte = Math.max( maxFirstByte, firstByte );
+            }
+
+            int bucket = 0;
+            while ( bucket < BUCKETS.length && millis( latency ) >= BUCKETS[bucket] )
+            {
+                bucket++;
+            }
+            histogram[bucket]++;
+        }
+
+        /**
+         * Get the throughput while transferring, in bytes per second.
+         */
+        long getThroughput()
+        {
+            return latency > 0 ? bytes * 1000000000L / latency : 0;
+        }
+
+        long getMeanFirstByte()
+        {
+            return started > 0 ? firstByte / started : 0;
+        }
+
+        public String toString()
+        {
+            return requestType + " " + repositoryId + " (" + url + "): " + requests + " requests, " + errors
+                + " errors, " + ( ( bytes + KILO / 2 ) / KILO ) + "K in " + millis( latency ) + " ms, "
+                + ( ( getThroughput() + KILO / 2 ) / KILO ) + "K/s, time to first byte " + millis( getMeanFirstByte() )
+                + " ms mean, " + millis( maxFirstByte ) + " ms max";
+        }
+
+        void writeJson( Writer writer )
+            throws IOException
+        {
+            writer.write( "    {\n" );
+            writer.write( "      \"repository\": " + quote( repositoryId ) + ",\n" );
+            writer.write( "      \"url\": " + quote( url ) + ",\n" );
+            writer.write( "      \"requestType\": " + quote( requestType ) + ",\n" );
+            writer.write( "      \"requests\": " + requests + ",\n" );
+            writer.write( "      \"errors\": " + errors + ",\n" );
+            writer.write( "      \"bytes\": " + bytes + ",\n" );
+            writer.write( "      \"timeMillis\": " + millis( latency ) + ",\n" );
+            writer.write( "      \"bytesPerSecond\": " + getThroughput() + ",\n" );
+            writer.write( "      \"timeToFirstByteMillis\": { \"mean\": " + millis( getMeanFirstByte() )
+                + ", \"max\": " + millis( maxFirstByte ) + " },\n" );
+            writer.write( "      \"latencyHistogramMillis\": {" );
+            for ( int i = 0; i < histogram.length; i++ )
+            {
+                String bucket = i < BUCKETS.length ? "<" + BUCKETS[i] : ">=" + BUCKETS[BUCKETS.length - 1];
+                writer.write( ( i > 0 ? ", " : " " ) + quote( bucket ) + ": " + histogram[i] );
+            }
+            writer.write( " }\n    }" );
+        }
+    }
+}
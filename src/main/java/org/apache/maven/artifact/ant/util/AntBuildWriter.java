@@ -24,7 +24,6 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 
-import org.apache.tools.ant.DirectoryScanner;
 import org.apache.tools.ant.types.FileList;
 import org.apache.tools.ant.types.FileSet;
 import org.apache.tools.ant.types.Path;
@@ -136,14 +135,20 @@ public class AntBuildWriter
         File dir = fileSet.getDir( fileSet.getProject() );
         writer.addAttribute( "dir", dir.getAbsolutePath() );
 
-        DirectoryScanner scanner = fileSet.getDirectoryScanner( fileSet.getProject() );
-        scanner.scan();
-        String[] files = scanner.getIncludedFiles();
+        // write the patterns of the fileset rather than scanning its directory, the whole local repository
+        String[] includes = fileSet.mergeIncludes( fileSet.getProject() );
+        String[] excludes = fileSet.mergeExcludes( fileSet.getProject() );
 
-        for ( int i = 0; i < files.length; ++i )
+        for ( int i = 0; includes != null && i < includes.length; ++i )
         {
             writer.startElement( "include" );
-            writer.addAttribute( "name", files[i] );
+            writer.addAttribute( "name", includes[i] );
+            writer.endElement();
+        }
+        for ( int i = 0; excludes != null && i < excludes.length; ++i )
+        {
+            writer.startElement( "exclude" );
+            writer.addAttribute( "name", excludes[i] );
             writer.endElement();
         }
 
@@ -0,0 +1,65 @@
+package org.apache.maven.artifact.ant.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factory for the worker pools used by the tasks: threads are daemon, so that a forgotten pool never
+ * prevents Ant from exiting, and inherit the context class loader of the task that created the pool.
+ */
+public class DaemonThreadFactory
+    implements ThreadFactory
+{
+    private final String name;
+
+    private final ClassLoader contextClassLoader;
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    public DaemonThreadFactory( String name )
+    {
+        this.name = name;
+        this.contextClassLoader = Thread.currentThread().getContextClassLoader();
+    }
+
+    public Thread newThread( Runnable runnable )
+    {
+        Thread thread = new Thread( runnable, name + "-" + count.incrementAndGet() );
+        thread.setDaemon( true );
+        thread.setContextClassLoader( contextClassLoader );
+        return thread;
+    }
+
+    /**
+     * Create a fixed size pool of daemon threads.
+     *
+     * @param name the prefix of the thread names
+     * @param threads the maximum number of concurrent threads
+     * @return the pool, to be shut down by the caller
+     */
+    public static ExecutorService newFixedThreadPool( String name, int threads )
+    {
+        return Executors.newFixedThreadPool( threads, new DaemonThreadFactory( name ) );
+    }
+}
@@ -0,0 +1,261 @@
+package org.apache.maven.artifact.ant.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+import org.apache.tools.ant.types.Path;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Utility class for loading a dependency refs cache written by {@link DependencyRefsWriter} directly into the
+ * properties and references of a project. The whole file is checked before anything is set in the project: a file
+ * written for another key, a damaged or truncated file or a file referencing artifacts that were removed from the
+ * local repository is ignored.
+ *
+ * @since 2.1.4
+ */
+public class DependencyRefsReader
+{
+    private final Project project;
+
+    public DependencyRefsReader( Project project )
+    {
+        this.project = project;
+    }
+
+    /**
+     * Load the dependency refs from the given file into the project.
+     *
+     * @param file the file written by {@link DependencyRefsWriter}
+     * @param key the expected cache key
+     * @return <code>true</code> if the refs were loaded, <code>false</code> if the file is out of date
+     * @throws IOException if the file can't be read
+     */
+    public boolean load( File file, String key )
+        throws IOException
+    {
+        List<String[]> lines = new ArrayList<String[]>();
+
+        BufferedReader reader =
+            new BufferedReader( new InputStreamReader( new FileInputStream( file ),
+                                                       AntBuildWriter.DEFAULT_FILE_ENCODING ) );
+        try
+        {
+            if ( !DependencyRefsWriter.HEADER.equals( reader.readLine() ) )
+            {
+                return false;
+            }
+            String[] keyLine = split( reader.readLine() );
+            if ( keyLine == null || keyLine.length != 2 || !DependencyRefsWriter.KEY.equals( keyLine[0] )
+                || !keyLine[1].equals( key ) )
+            {
+                return false;
+            }
+
+            String line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                String[] fields = split( line );
+                if ( DependencyRefsWriter.END.equals( fields[0] ) )
+                {
+                    // the end line holds the number of entries, and must be the last line
+                    if ( fields.length != 2 || !fields[1].equals( Integer.toString( lines.size() ) )
+                        || reader.readLine() != null )
+                    {
+                        return false;
+                    }
+                    break;
+                }
+                if ( !isValid( fields ) )
+                {
+                    return false;
+                }
+                lines.add( fields );
+            }
+            if ( line == null )
+            {
+                // truncated
+                return false;
+            }
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+
+        for ( String[] fields : lines )
+        {
+            apply( fields );
+        }
+        return true;
+    }
+
+    /**
+     * Check if a file referenced by the cache still exists.
+     *
+     * @param file the file
+     * @return whether the file exists
+     */
+    protected boolean exists( File file )
+    {
+        return file.exists();
+    }
+
+    private boolean isValid( String[] fields )
+    {
+        String type = fields[0];
+        if ( DependencyRefsWriter.PROPERTY.equals( type ) || DependencyRefsWriter.NEW_PROPERTY.equals( type ) )
+        {
+            return fields.length == 3;
+        }
+        else if ( DependencyRefsWriter.FILESET.equals( type ) )
+        {
+            if ( fields.length < 3 )
+            {
+                return false;
+            }
+            File dir = new File( fields[2] );
+            for ( int i = 3; i < fields.length; i++ )
+            {
+                if ( fields[i].length() == 0 )
+                {
+                    return false;
+                }
+                String pattern = fields[i].substring( 1 );
+                if ( fields[i].charAt( 0 ) == DependencyRefsWriter.INCLUDE && !isPattern( pattern )
+                    && !exists( new File( dir, pattern ) ) )
+                {
+                    // the artifact was removed from the local repository
+                    return false;
+                }
+            }
+            return true;
+        }
+        else if ( DependencyRefsWriter.PATH.equals( type ) )
+        {
+            return fields.length >= 2;
+        }
+        return false;
+    }
+
+    private void apply( String[] fields )
+    {
+        String type = fields[0];
+        if ( DependencyRefsWriter.PROPERTY.equals( type ) )
+        {
+            project.setProperty( fields[1], fields[2] );
+        }
+        else if ( DependencyRefsWriter.NEW_PROPERTY.equals( type ) )
+        {
+            project.setNewProperty( fields[1], fields[2] );
+        }
+        else if ( DependencyRefsWriter.FILESET.equals( type ) )
+        {
+            FileSet fileSet = new FileSet();
+            fileSet.setProject( project );
+            fileSet.setDir( new File( fields[2] ) );
+            for ( int i = 3; i < fields.length; i++ )
+            {
+                String pattern = fields[i].substring( 1 );
+                if ( fields[i].charAt( 0 ) == DependencyRefsWriter.INCLUDE )
+                {
+                    fileSet.createInclude().setName( pattern );
+                }
+                else
+                {
+                    fileSet.createExclude().setName( pattern );
+                }
+            }
+            project.addReference( fields[1], fileSet );
+        }
+        else
+        {
+            Path path = new Path( project );
+            for ( int i = 2; i < fields.length; i++ )
+            {
+                path.createPathElement().setLocation( new File( fields[i] ) );
+            }
+            project.addReference( fields[1], path );
+        }
+    }
+
+    private static boolean isPattern( String name )
+    {
+        return name.indexOf( '*' ) >= 0 || name.indexOf( '?' ) >= 0;
+    }
+
+    /**
+     * Split a line into its tab separated fields, unescaping them.
+     *
+     * @return the fields, or <code>null</code> at the end of the file
+     */
+    private static String[] split( String line )
+    {
+        if ( line == null )
+        {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<String>();
+        StringBuffer field = new StringBuffer();
+        for ( int i = 0; i < line.length(); i++ )
+        {
+            char c = line.charAt( i );
+            if ( c == '\t' )
+            {
+                fields.add( field.toString() );
+                field.setLength( 0 );
+            }
+            else if ( c == '\\' && i + 1 < line.length() )
+            {
+                char escaped = line.charAt( ++i );
+                switch ( escaped )
+                {
+                    case 't':
+                        field.append( '\t' );
+                        break;
+                    case 'n':
+                        field.append( '\n' );
+                        break;
+                    case 'r':
+                        field.append( '\r' );
+                        break;
+                    default:
+                        field.append( escaped );
+                }
+            }
+            else
+            {
+                field.append( c );
+            }
+        }
+        fields.add( field.toString() );
+        return fields.toArray( new String[fields.size()] );
+    }
+}
@@ -0,0 +1,235 @@
+package org.apache.maven.artifact.ant.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.apache.tools.ant.types.FileSet;
+import org.apache.tools.ant.types.Path;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Utility class for writing the dependency refs cache, read back by {@link DependencyRefsReader}.
+ * <p>
+ * The file is line oriented: a header line, a line with the cache key, then one line per property, fileset or path,
+ * made of tab separated fields, and an end line with the number of these lines. Tabs, line breaks and backslashes in
+ * the fields are escaped with a backslash. The file is written to a temporary file, renamed once complete.
+ * </p>
+ *
+ * @since 2.1.4
+ */
+public class DependencyRefsWriter
+{
+    static final String HEADER = "# maven-ant-tasks dependency refs 2";
+
+    static final String KEY = "key";
+
+    static final String END = "end";
+
+    static final String PROPERTY = "property";
+
+    static final String NEW_PROPERTY = "newproperty";
+
+    static final String FILESET = "fileset";
+
+    static final String PATH = "path";
+
+    static final char INCLUDE = '+';
+
+    static final char EXCLUDE = '-';
+
+    private Writer writer;
+
+    private File file;
+
+    private File temp;
+
+    private int count;
+
+    /**
+     * Open a dependency refs file for writing, and write its header.
+     *
+     * @param file the file to write
+     * @param key the cache key the refs were resolved for
+     * @throws IOException
+     */
+    public void open( File file, String key )
+        throws IOException
+    {
+        this.file = file;
+        temp = FileUtil.createTempFile( file );
+        writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( temp ),
+                                                             AntBuildWriter.DEFAULT_FILE_ENCODING ) );
+
+        writer.write( HEADER );
+        writer.write( '\n' );
+        writeLine( KEY, new String[] { key } );
+        count = 0;
+    }
+
+    /**
+     * Write the end line and close the file, replacing the previous file.
+     *
+     * @throws IOException
+     */
+    public void close()
+        throws IOException
+    {
+        writeLine( END, new String[] { Integer.toString( count ) } );
+        try
+        {
+            writer.close();
+            FileUtil.replace( temp, file );
+        }
+        finally
+        {
+            abort();
+        }
+    }
+
+    /**
+     * Close the file after an error, leaving the previous file alone.
+     */
+    public void abort()
+    {
+        IOUtil.close( writer );
+        if ( temp != null )
+        {
+            temp.delete();
+        }
+    }
+
+    /**
+     * Write a property, overriding any previous value when loaded.
+     *
+     * @param name
+     * @param value
+     * @throws IOException
+     */
+    public void writeProperty( String name, String value )
+        throws IOException
+    {
+        writeLine( PROPERTY, new String[] { name, value } );
+    }
+
+    /**
+     * Write a property, ignored when loaded if the property is already set.
+     *
+     * @param name
+     * @param value
+     * @throws IOException
+     */
+    public void writeNewProperty( String name, String value )
+        throws IOException
+    {
+        writeLine( NEW_PROPERTY, new String[] { name, value } );
+    }
+
+    /**
+     * Write a fileset with its include and exclude patterns, without scanning its directory.
+     *
+     * @param fileSet
+     * @param id
+     * @throws IOException
+     */
+    public void writeFileSet( FileSet fileSet, String id )
+        throws IOException
+    {
+        String[] includes = fileSet.mergeIncludes( fileSet.getProject() );
+        String[] excludes = fileSet.mergeExcludes( fileSet.getProject() );
+        includes = ( includes == null ) ? new String[0] : includes;
+        excludes = ( excludes == null ) ? new String[0] : excludes;
+
+        String[] fields = new String[2 + includes.length + excludes.length];
+        fields[0] = id;
+        fields[1] = fileSet.getDir( fileSet.getProject() ).getAbsolutePath();
+        int index = 2;
+        for ( int i = 0; i < includes.length; i++ )
+        {
+            fields[index++] = INCLUDE + includes[i];
+        }
+        for ( int i = 0; i < excludes.length; i++ )
+        {
+            fields[index++] = EXCLUDE + excludes[i];
+        }
+        writeLine( FILESET, fields );
+    }
+
+    /**
+     * Write a path.
+     *
+     * @param path
+     * @param pathId
+     * @throws IOException
+     */
+    public void writePath( Path path, String pathId )
+        throws IOException
+    {
+        String[] paths = path.list();
+        String[] fields = new String[1 + paths.length];
+        fields[0] = pathId;
+        System.arraycopy( paths, 0, fields, 1, paths.length );
+        writeLine( PATH, fields );
+    }
+
+    private void writeLine( String type, String[] fields )
+        throws IOException
+    {
+        count++;
+        writer.write( type );
+        for ( int i = 0; i < fields.length; i++ )
+        {
+            writer.write( '\t' );
+            writeEscaped( fields[i] );
+        }
+        writer.write( '\n' );
+    }
+
+    private void writeEscaped( String value )
+        throws IOException
+    {
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            switch ( c )
+            {
+                case '\\':
+                    writer.write( "\\\\" );
+                    break;
+                case '\t':
+                    writer.write( "\\t" );
+                    break;
+                case '\n':
+                    writer.write( "\\n" );
+                    break;
+                case '\r':
+                    writer.write( "\\r" );
+                    break;
+                default:
+                    writer.write( c );
+            }
+        }
+    }
+}
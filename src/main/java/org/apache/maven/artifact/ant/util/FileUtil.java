@@ -0,0 +1,79 @@
+package org.apache.maven.artifact.ant.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Utility stuff for replacing the cache files of the tasks, so that a build killed while writing one, or another build
+ * reading it at the same time, never sees a partial file.
+ *
+ * @since 2.1.4
+ */
+public class FileUtil
+{
+    private FileUtil()
+    {
+        // no instances
+    }
+
+    /**
+     * Create a temporary file next to a file, to be written then moved to it with {@link #replace(File, File)}.
+     *
+     * @param file the file to replace
+     * @return the temporary file, in the same directory
+     * @throws IOException
+     */
+    public static File createTempFile( File file )
+        throws IOException
+    {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if ( !dir.exists() )
+        {
+            dir.mkdirs();
+        }
+        return File.createTempFile( file.getName() + ".", ".tmp", dir );
+    }
+
+    /**
+     * Move a complete temporary file to a file, replacing it. The temporary file is deleted if it can't be moved.
+     *
+     * @param temp the temporary file created by {@link #createTempFile(File)}
+     * @param file the file to replace
+     * @throws IOException if the file can't be replaced
+     */
+    public static void replace( File temp, File file )
+        throws IOException
+    {
+        if ( temp.renameTo( file ) )
+        {
+            return;
+        }
+
+        // Windows doesn't rename over an existing file
+        file.delete();
+        if ( !temp.renameTo( file ) )
+        {
+            temp.delete();
+            throw new IOException( "Unable to rename " + temp + " to " + file );
+        }
+    }
+}
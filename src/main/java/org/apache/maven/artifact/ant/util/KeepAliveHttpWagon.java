@@ -0,0 +1,485 @@
+package org.apache.maven.artifact.ant.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.Authenticator;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.maven.wagon.ConnectionException;
+import org.apache.maven.wagon.InputData;
+import org.apache.maven.wagon.OutputData;
+import org.apache.maven.wagon.ResourceDoesNotExistException;
+import org.apache.maven.wagon.StreamWagon;
+import org.apache.maven.wagon.TransferFailedException;
+import org.apache.maven.wagon.authentication.AuthenticationException;
+import org.apache.maven.wagon.authorization.AuthorizationException;
+import org.apache.maven.wagon.events.TransferEvent;
+import org.apache.maven.wagon.proxy.ProxyInfo;
+import org.apache.maven.wagon.resource.Resource;
+import org.apache.maven.wagon.shared.http.HtmlFileListParser;
+import org.codehaus.plexus.util.Base64;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * HTTP and HTTPS wagon reusing the persistent connections kept by the JDK for each host, so that the TCP and TLS
+ * handshakes are paid once per host rather than once per resource.
+ * <p>
+ * Unlike the lightweight HTTP wagon, it never disconnects, reads every response to its end, sends the content length
+ * of uploads instead of buffering them, and sends the credentials with each request instead of waiting for a
+ * challenge. The proxy is given to each connection instead of being set in the system properties, so that
+ * concurrent transfers, each with its own wagon instance, don't interfere. The credentials of an authenticating proxy
+ * are sent in the headers too and, since the JDK doesn't send these headers when tunneling HTTPS, given to the
+ * authenticator of each connection on Java 9 and later: the default authenticator of the JVM is left alone. The
+ * number of idle connections kept per host is set by the <code>http.maxConnections</code> system property of the
+ * JDK.
+ * </p>
+ *
+ * @since 2.1.4
+ */
+public class KeepAliveHttpWagon
+    extends StreamWagon
+{
+    /**
+     * <code>HttpURLConnection.setAuthenticator()</code>, added in Java 9, or <code>null</code>.
+     */
+    private static final Method SET_AUTHENTICATOR = getSetAuthenticator();
+
+    private Proxy proxy;
+
+    private String authorization;
+
+    private String proxyAuthorization;
+
+    private Authenticator proxyAuthenticator;
+
+    private HttpURLConnection putConnection;
+
+    /**
+     * Whether to use any proxy cache or not.
+     *
+     * @plexus.configuration default="false"
+     */
+    private boolean useCache;
+
+    /** @plexus.configuration */
+    private Properties httpHeaders;
+
+    protected void openConnectionInternal()
+        throws ConnectionException, AuthenticationException
+    {
+        ProxyInfo proxyInfo = getProxyInfo( getRepository().getProtocol(), getRepository().getHost() );
+        if ( proxyInfo == null && "https".equals( getRepository().getProtocol() ) )
+        {
+            proxyInfo = getProxyInfo( "http", getRepository().getHost() );
+        }
+
+        proxy = Proxy.NO_PROXY;
+        proxyAuthorization = null;
+        proxyAuthenticator = null;
+        if ( proxyInfo != null )
+        {
+            proxy = new Proxy( Proxy.Type.HTTP, new InetSocketAddress( proxyInfo.getHost(), proxyInfo.getPort() ) );
+            if ( proxyInfo.getUserName() != null )
+            {
+                proxyAuthorization = basic( proxyInfo.getUserName(), proxyInfo.getPassword() );
+                // the JDK doesn't send the headers of the connection to the proxy when tunneling HTTPS
+                proxyAuthenticator = new ProxyAuthenticator( proxyInfo );
+            }
+        }
+
+        authorization = null;
+        if ( authenticationInfo != null && authenticationInfo.getUserName() != null )
+        {
+            authorization = basic( authenticationInfo.getUserName(), authenticationInfo.getPassword() );
+        }
+    }
+
+    public void closeConnection()
+        throws ConnectionException
+    {
+        // the connections stay open for the next transfers to the same host
+        putConnection = null;
+    }
+
+    public void fillInputData( InputData inputData )
+        throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException
+    {
+        Resource resource = inputData.getResource();
+        String url = buildUrl( resource.getName() );
+        try
+        {
+            HttpURLConnection connection = openConnection( url );
+            connection.setRequestProperty( "Accept-Encoding", "gzip" );
+            if ( resource.getLastModified() > 0 )
+            {
+                connection.setIfModifiedSince( resource.getLastModified() );
+            }
+
+            int responseCode = connection.getResponseCode();
+            switch ( responseCode )
+            {
+                case HttpURLConnection.HTTP_OK:
+                    break;
+
+                case HttpURLConnection.HTTP_NOT_MODIFIED:
+                    // not newer: getIfNewer closes the stream without reading it
+                    release( connection );
+                    inputData.setInputStream( new ByteArrayInputStream( new byte[0] ) );
+                    return;
+
+                case HttpURLConnection.HTTP_FORBIDDEN:
+                case HttpURLConnection.HTTP_UNAUTHORIZED:
+                    release( connection );
+                    throw new AuthorizationException( "Access denied to: " + url );
+
+                case HttpURLConnection.HTTP_NOT_FOUND:
+                case HttpURLConnection.HTTP_GONE:
+                    release( connection );
+                    throw new ResourceDoesNotExistException( "Unable to locate resource in repository: " + url );
+
+                default:
+                    release( connection );
+                    throw new TransferFailedException( "Failed to transfer file: " + url + ". Return code is: "
+                        + responseCode );
+            }
+
+            InputStream is = connection.getInputStream();
+            if ( "gzip".equalsIgnoreCase( connection.getContentEncoding() ) )
+            {
+                is = new GZIPInputStream( is );
+            }
+            inputData.setInputStream( is );
+            resource.setLastModified( connection.getLastModified() );
+            resource.setContentLength( connection.getContentLength() );
+        }
+        catch ( MalformedURLException e )
+        {
+            throw new ResourceDoesNotExistException( "Invalid repository URL: " + url, e );
+        }
+        catch ( IOException e )
+        {
+            throw new TransferFailedException( "Error transferring file: " + e.getMessage(), e );
+        }
+    }
+
+    public void fillOutputData( OutputData outputData )
+        throws TransferFailedException
+    {
+        Resource resource = outputData.getResource();
+        try
+        {
+            putConnection = openConnection( buildUrl( resource.getName() ) );
+            putConnection.setRequestMethod( "PUT" );
+            putConnection.setDoOutput( true );
+            long length = resource.getContentLength();
+            if ( length >= 0 && length <= Integer.MAX_VALUE )
+            {
+                putConnection.setFixedLengthStreamingMode( (int) length );
+            }
+            else
+            {
+                putConnection.setChunkedStreamingMode( 0 );
+            }
+            outputData.setOutputStream( putConnection.getOutputStream() );
+        }
+        catch ( IOException e )
+        {
+            throw new TransferFailedException( "Error transferring file: " + e.getMessage(), e );
+        }
+    }
+
+    protected void finishPutTransfer( Resource resource, InputStream input, OutputStream output )
+        throws TransferFailedException, AuthorizationException, ResourceDoesNotExistException
+    {
+        String url = buildUrl( resource.getName() );
+        try
+        {
+            int statusCode = putConnection.getResponseCode();
+            release( putConnection );
+
+            switch ( statusCode )
+            {
+                case HttpURLConnection.HTTP_OK:
+                case HttpURLConnection.HTTP_CREATED:
+                case HttpURLConnection.HTTP_ACCEPTED:
+                case HttpURLConnection.HTTP_NO_CONTENT:
+                    break;
+
+                case HttpURLConnection.HTTP_FORBIDDEN:
+                case HttpURLConnection.HTTP_UNAUTHORIZED:
+                    throw new AuthorizationException( "Access denied to: " + url );
+
+                case HttpURLConnection.HTTP_NOT_FOUND:
+                    throw new ResourceDoesNotExistException( "File: " + url + " does not exist" );
+
+                default:
+                    throw new TransferFailedException( "Failed to transfer file: " + url + ". Return code is: "
+                        + statusCode );
+            }
+        }
+        catch ( IOException e )
+        {
+            fireTransferError( resource, e, TransferEvent.REQUEST_PUT );
+
+            throw new TransferFailedException( "Error transferring file: " + e.getMessage(), e );
+        }
+        finally
+        {
+            putConnection = null;
+        }
+    }
+
+    public boolean resourceExists( String resourceName )
+        throws TransferFailedException, AuthorizationException
+    {
+        String url = buildUrl( new Resource( resourceName ).getName() );
+        try
+        {
+            HttpURLConnection connection = openConnection( url );
+            connection.setRequestMethod( "HEAD" );
+
+            int statusCode = connection.getResponseCode();
+            release( connection );
+
+            switch ( statusCode )
+            {
+                case HttpURLConnection.HTTP_OK:
+                    return true;
+
+                case HttpURLConnection.HTTP_NOT_FOUND:
+                case HttpURLConnection.HTTP_GONE:
+                    return false;
+
+                case HttpURLConnection.HTTP_FORBIDDEN:
+                case HttpURLConnection.HTTP_UNAUTHORIZED:
+                    throw new AuthorizationException( "Access denied to: " + url );
+
+                default:
+                    throw new TransferFailedException( "Failed to look for file: " + url + ". Return code is: "
+                        + statusCode );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new TransferFailedException( "Error transferring file: " + e.getMessage(), e );
+        }
+    }
+
+    public List<?> getFileList( String destinationDirectory )
+        throws TransferFailedException, ResourceDoesNotExistException, AuthorizationException
+    {
+        if ( destinationDirectory.length() > 0 && !destinationDirectory.endsWith( "/" ) )
+        {
+            destinationDirectory += "/";
+        }
+
+        InputData inputData = new InputData();
+        inputData.setResource( new Resource( destinationDirectory ) );
+        fillInputData( inputData );
+
+        InputStream is = inputData.getInputStream();
+        try
+        {
+            return HtmlFileListParser.parseFileList( buildUrl( destinationDirectory ), is );
+        }
+        finally
+        {
+            IOUtil.close( is );
+        }
+    }
+
+    private HttpURLConnection openConnection( String url )
+        throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) new URL( url ).openConnection( proxy );
+        connection.setConnectTimeout( getTimeout() );
+        connection.setReadTimeout( getTimeout() );
+        if ( !useCache )
+        {
+            connection.setUseCaches( false );
+            connection.setRequestProperty( "Pragma", "no-cache" );
+        }
+        if ( authorization != null )
+        {
+            connection.setRequestProperty( "Authorization", authorization );
+        }
+        if ( proxyAuthorization != null )
+        {
+            connection.setRequestProperty( "Proxy-Authorization", proxyAuthorization );
+        }
+        if ( proxyAuthenticator != null && SET_AUTHENTICATOR != null )
+        {
+            try
+            {
+                SET_AUTHENTICATOR.invoke( connection, new Object[] { proxyAuthenticator } );
+            }
+            catch ( IllegalAccessException e )
+            {
+                throw new IllegalStateException( e.getMessage() );
+            }
+            catch ( InvocationTargetException e )
+            {
+                throw new IllegalStateException( e.getTargetException().getMessage() );
+            }
+        }
+        if ( httpHeaders != null )
+        {
+            for ( Iterator<?> i = httpHeaders.keySet().iterator(); i.hasNext(); )
+            {
+                String header = (String) i.next();
+                connection.setRequestProperty( header, httpHeaders.getProperty( header ) );
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Read the rest of a response that is not transferred, so that its connection can be reused.
+     */
+    private static void release( HttpURLConnection connection )
+    {
+        InputStream is;
+        try
+        {
+            is = connection.getInputStream();
+        }
+        catch ( IOException e )
+        {
+            is = connection.getErrorStream();
+        }
+        if ( is == null )
+        {
+            return;
+        }
+        try
+        {
+            byte[] buffer = new byte[4096];
+            while ( is.read( buffer ) >= 0 )
+            {
+                // discard
+            }
+        }
+        catch ( IOException e )
+        {
+            // the connection is not reused
+        }
+        finally
+        {
+            IOUtil.close( is );
+        }
+    }
+
+    private String buildUrl( String path )
+    {
+        String repoUrl = getRepository().getUrl();
+
+        path = path.replace( ' ', '+' );
+
+        if ( repoUrl.charAt( repoUrl.length() - 1 ) != '/' )
+        {
+            return repoUrl + '/' + path;
+        }
+
+        return repoUrl + path;
+    }
+
+    private static String basic( String userName, String password )
+    {
+        String credentials = userName + ":" + ( password == null ? "" : password );
+        try
+        {
+            return "Basic " + new String( Base64.encodeBase64( credentials.getBytes( "UTF-8" ) ), "US-ASCII" );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            // UTF-8 and US-ASCII are always supported
+            throw new IllegalStateException( e.getMessage() );
+        }
+    }
+
+    private static Method getSetAuthenticator()
+    {
+        try
+        {
+            return HttpURLConnection.class.getMethod( "setAuthenticator", new Class<?>[] { Authenticator.class } );
+        }
+        catch ( NoSuchMethodException e )
+        {
+            // before Java 9: HTTPS tunnels through an authenticating proxy are not supported
+            return null;
+        }
+    }
+
+    /**
+     * The authenticator of the connections through an authenticating proxy, only answering the proxy.
+     */
+    private static class ProxyAuthenticator
+        extends Authenticator
+    {
+        private final PasswordAuthentication credentials;
+
+        ProxyAuthenticator( ProxyInfo proxyInfo )
+        {
+            String password = proxyInfo.getPassword() == null ? "" : proxyInfo.getPassword();
+            credentials = new PasswordAuthentication( proxyInfo.getUserName(), password.toCharArray() );
+        }
+
+        protected PasswordAuthentication getPasswordAuthentication()
+        {
+            return getRequestorType() == RequestorType.PROXY ? credentials : null;
+        }
+    }
+
+    public boolean isUseCache()
+    {
+        return useCache;
+    }
+
+    public void setUseCache( boolean useCache )
+    {
+        this.useCache = useCache;
+    }
+
+    public Properties getHttpHeaders()
+    {
+        return httpHeaders;
+    }
+
+    public void setHttpHeaders( Properties httpHeaders )
+    {
+        this.httpHeaders = httpHeaders;
+    }
+}
@@ -0,0 +1,101 @@
+package org.apache.maven.artifact.ant;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Organization;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.introspection.ReflectionValueExtractor;
+
+public class POMExpressionTestCase
+    extends TestCase
+{
+    private static final String[] EXPRESSIONS = {
+        "project.groupId",
+        "project.artifactId",
+        "project.version",
+        "project.build.finalName",
+        "project.organization.name",
+        "project.organization.url",
+        "project.scm.url",
+        "project.scm",
+        "project.file",
+        "project.properties",
+        "project.dependencies",
+        "project.dependencies[0].artifactId",
+        "project.dependencies[1].artifactId",
+        "project.dependencies[0].optional",
+        "project.unknown",
+        "project.build.unknown.deeper",
+        "project",
+    };
+
+    public void testSameValuesAsReflectionValueExtractor()
+        throws Exception
+    {
+        MavenProject project = createProject();
+        for ( int i = 0; i < EXPRESSIONS.length; i++ )
+        {
+            String expression = EXPRESSIONS[i];
+            Object expected = ReflectionValueExtractor.evaluate( expression, project );
+            // evaluate twice, to check the cached accessors
+            assertEquals( expression, expected, POMExpression.compile( expression ).evaluate( project ) );
+            assertEquals( expression, expected, POMExpression.compile( expression ).evaluate( project ) );
+        }
+    }
+
+    public void testCompiledOnce()
+    {
+        assertSame( POMExpression.compile( "project.name" ), POMExpression.compile( "project.name" ) );
+    }
+
+    private static MavenProject createProject()
+    {
+        Model model = new Model();
+        model.setGroupId( "org.example" );
+        model.setArtifactId( "example" );
+        model.setVersion( "1.0" );
+
+        Build build = new Build();
+        build.setFinalName( "example-final" );
+        model.setBuild( build );
+
+        Organization organization = new Organization();
+        organization.setName( "Example" );
+        model.setOrganization( organization );
+
+        Dependency dependency = new Dependency();
+        dependency.setArtifactId( "dependency" );
+        dependency.setOptional( true );
+        model.addDependency( dependency );
+
+        Properties properties = new Properties();
+        properties.setProperty( "key", "value" );
+        model.setProperties( properties );
+
+        return new MavenProject( model );
+    }
+}
@@ -0,0 +1,354 @@
+package org.apache.maven.artifact.ant.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Authenticator;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.wagon.ResourceDoesNotExistException;
+import org.apache.maven.wagon.authentication.AuthenticationInfo;
+import org.apache.maven.wagon.proxy.ProxyInfo;
+import org.apache.maven.wagon.repository.Repository;
+import org.codehaus.plexus.util.FileUtils;
+
+public class KeepAliveHttpWagonTestCase
+    extends TestCase
+{
+    private Server server;
+
+    private KeepAliveHttpWagon wagon;
+
+    private File dir;
+
+    protected void setUp()
+        throws Exception
+    {
+        server = new Server();
+        server.resources.put( "/repo/a/b.txt", "content of b" );
+        wagon = new KeepAliveHttpWagon();
+        dir = new File( "target/keep-alive-http-wagon" );
+        FileUtils.deleteDirectory( dir );
+        dir.mkdirs();
+    }
+
+    protected void tearDown()
+        throws Exception
+    {
+        wagon.disconnect();
+        server.close();
+    }
+
+    public void testGet()
+        throws Exception
+    {
+        wagon.connect( new Repository( "test", server.getUrl() ) );
+
+        File file = new File( dir, "b.txt" );
+        wagon.get( "a/b.txt", file );
+        assertEquals( "content of b", FileUtils.fileRead( file ) );
+
+        Request request = server.getRequest( 0 );
+        assertEquals( "GET /repo/a/b.txt", request.line );
+        assertNull( request.headers.get( "authorization" ) );
+    }
+
+    public void testNotFoundReusesConnection()
+        throws Exception
+    {
+        wagon.connect( new Repository( "test", server.getUrl() ) );
+
+        try
+        {
+            wagon.get( "a/missing.txt", new File( dir, "missing.txt" ) );
+            fail( "missing.txt doesn't exist" );
+        }
+        catch ( ResourceDoesNotExistException e )
+        {
+            // expected
+        }
+        File file = new File( dir, "b.txt" );
+        wagon.get( "a/b.txt", file );
+        assertEquals( "content of b", FileUtils.fileRead( file ) );
+
+        assertEquals( 2, server.getRequestCount() );
+        assertEquals( "the connection should be reused after the 404", 1, server.getConnectionCount() );
+    }
+
+    public void testPut()
+        throws Exception
+    {
+        wagon.connect( new Repository( "test", server.getUrl() ) );
+
+        File file = new File( dir, "c.txt" );
+        FileUtils.fileWrite( file.getPath(), "content of c" );
+        wagon.put( file, "c/c.txt" );
+
+        Request request = server.getRequest( 0 );
+        assertEquals( "PUT /repo/c/c.txt", request.line );
+        assertEquals( String.valueOf( file.length() ), request.headers.get( "content-length" ) );
+        assertNull( request.headers.get( "transfer-encoding" ) );
+        assertEquals( "content of c", server.resources.get( "/repo/c/c.txt" ) );
+    }
+
+    public void testPreemptiveAuthentication()
+        throws Exception
+    {
+        AuthenticationInfo authenticationInfo = new AuthenticationInfo();
+        authenticationInfo.setUserName( "user" );
+        authenticationInfo.setPassword( "secret" );
+        wagon.connect( new Repository( "test", server.getUrl() ), authenticationInfo );
+
+        wagon.get( "a/b.txt", new File( dir, "b.txt" ) );
+
+        // sent with the first request, without waiting for a challenge
+        assertEquals( 1, server.getRequestCount() );
+        assertEquals( "Basic dXNlcjpzZWNyZXQ=", server.getRequest( 0 ).headers.get( "authorization" ) );
+    }
+
+    public void testProxyAuthentication()
+        throws Exception
+    {
+        Authenticator.setDefault( null );
+
+        ProxyInfo proxyInfo = new ProxyInfo();
+        proxyInfo.setType( "http" );
+        proxyInfo.setHost( server.socket.getInetAddress().getHostAddress() );
+        proxyInfo.setPort( server.socket.getLocalPort() );
+        proxyInfo.setUserName( "proxy" );
+        proxyInfo.setPassword( "secret" );
+        wagon.connect( new Repository( "test", "http://repository.invalid/repo" ), proxyInfo );
+
+        server.resources.put( "http://repository.invalid/repo/a/b.txt", "content of b" );
+        File file = new File( dir, "b.txt" );
+        wagon.get( "a/b.txt", file );
+        assertEquals( "content of b", FileUtils.fileRead( file ) );
+
+        Request request = server.getRequest( 0 );
+        assertEquals( "GET http://repository.invalid/repo/a/b.txt", request.line );
+        assertEquals( "Basic cHJveHk6c2VjcmV0", request.headers.get( "proxy-authorization" ) );
+
+        // the default authenticator of the JVM is left alone, where the JDK can tell it
+        try
+        {
+            assertNull( Authenticator.class.getMethod( "getDefault", new Class<?>[0] ).invoke( null, new Object[0] ) );
+        }
+        catch ( NoSuchMethodException e )
+        {
+            // before Java 9
+        }
+    }
+
+    private static class Request
+    {
+        private String line;
+
+        private final Map<String, String> headers = new HashMap<String, String>();
+    }
+
+    /**
+     * HTTP/1.1 server keeping the connections alive, serving the resources from a map and storing the uploads in it.
+     * It also serves the absolute URLs of the requests made to a proxy.
+     */
+    private static class Server
+        implements Runnable
+    {
+        private final ServerSocket socket;
+
+        private final Map<String, String> resources = new HashMap<String, String>();
+
+        private final List<Request> requests = new ArrayList<Request>();
+
+        private final List<Socket> connections = new ArrayList<Socket>();
+
+        Server()
+            throws IOException
+        {
+            socket = new ServerSocket( 0, 50, InetAddress.getByName( "127.0.0.1" ) );
+            Thread thread = new Thread( this, "keep-alive-http-wagon-test" );
+            thread.setDaemon( true );
+            thread.start();
+        }
+
+        String getUrl()
+        {
+            return "http://127.0.0.1:" + socket.getLocalPort() + "/repo";
+        }
+
+        synchronized Request getRequest( int index )
+        {
+            return requests.get( index );
+        }
+
+        synchronized int getRequestCount()
+        {
+            return requests.size();
+        }
+
+        synchronized int getConnectionCount()
+        {
+            return connections.size();
+        }
+
+        public void run()
+        {
+            try
+            {
+                while ( true )
+                {
+                    final Socket connection = socket.accept();
+                    synchronized ( this )
+                    {
+                        connections.add( connection );
+                    }
+                    Thread thread = new Thread( "keep-alive-http-wagon-test-connection" )
+                    {
+                        public void run()
+                        {
+                            serve( connection );
+                        }
+                    };
+                    thread.setDaemon( true );
+                    thread.start();
+                }
+            }
+            catch ( IOException e )
+            {
+                // closed
+            }
+        }
+
+        private void serve( Socket connection )
+        {
+            try
+            {
+                DataInputStream in = new DataInputStream( connection.getInputStream() );
+                OutputStream out = connection.getOutputStream();
+                String line;
+                while ( ( line = readLine( in ) ) != null )
+                {
+                    Request request = new Request();
+                    String[] parts = line.split( " " );
+                    request.line = parts[0] + " " + parts[1];
+                    while ( ( line = readLine( in ) ).length() > 0 )
+                    {
+                        int colon = line.indexOf( ':' );
+                        request.headers.put( line.substring( 0, colon ).trim().toLowerCase(),
+                                             line.substring( colon + 1 ).trim() );
+                    }
+                    String contentLength = request.headers.get( "content-length" );
+                    byte[] body = new byte[contentLength == null ? 0 : Integer.parseInt( contentLength )];
+                    in.readFully( body );
+
+                    String status;
+                    String content;
+                    synchronized ( this )
+                    {
+                        requests.add( request );
+                        if ( "PUT".equals( parts[0] ) )
+                        {
+                            resources.put( parts[1], new String( body, "UTF-8" ) );
+                            status = "201 Created";
+                            content = "";
+                        }
+                        else if ( resources.containsKey( parts[1] ) )
+                        {
+                            status = "200 OK";
+                            content = resources.get( parts[1] );
+                        }
+                        else
+                        {
+                            status = "404 Not Found";
+                            content = "no such resource: " + parts[1];
+                        }
+                    }
+                    byte[] bytes = content.getBytes( "UTF-8" );
+                    out.write( ( "HTTP/1.1 " + status + "\r\nContent-Type: text/plain\r\nContent-Length: "
+                        + bytes.length + "\r\n\r\n" ).getBytes( "US-ASCII" ) );
+                    if ( !"HEAD".equals( parts[0] ) )
+                    {
+                        out.write( bytes );
+                    }
+                    out.flush();
+                }
+            }
+            catch ( IOException e )
+            {
+                // closed by the client
+            }
+            finally
+            {
+                try
+                {
+                    connection.close();
+                }
+                catch ( IOException e )
+                {
+                    // ignore
+                }
+            }
+        }
+
+        private static String readLine( InputStream in )
+            throws IOException
+        {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int c;
+            while ( ( c = in.read() ) != '\n' )
+            {
+                if ( c < 0 )
+                {
+                    return line.size() == 0 ? null : line.toString( "US-ASCII" );
+                }
+                if ( c != '\r' )
+                {
+                    line.write( c );
+                }
+            }
+            return line.toString( "US-ASCII" );
+        }
+
+        void close()
+            throws IOException
+        {
+            socket.close();
+            synchronized ( this )
+            {
+                for ( Socket connection : connections )
+                {
+                    connection.close();
+                }
+            }
+        }
+    }
+}